@@ -0,0 +1,298 @@
+package site.snewbie.plugins.webview;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * 以内存映射方式打开的 zip 资源包，只解析中央目录建立索引，不解压任何文件。
+ * <p>
+ * 不支持 ZIP64 以及超过 2GB 的资源包。
+ */
+@Getter
+public class AssetPack {
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_MIN_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    private final File file;
+    private final String version;
+
+    @Getter(AccessLevel.NONE)
+    private final MappedByteBuffer buffer;
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Entry> entries;
+
+    public AssetPack(File file, String version) throws IOException {
+        this.file = file;
+        this.version = version;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("asset pack is larger than 2GB: " + file);
+            }
+
+            // 映射在 channel 关闭后依然有效，直到 buffer 被回收
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        this.entries = Collections.unmodifiableMap(this.readCentralDirectory());
+    }
+
+    public Entry getEntry(String name) {
+        return this.entries.get(name);
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * 打开指定条目，从 offset 开始最多读取 length 个字节。
+     */
+    public InputStream open(@NonNull Entry entry, long offset, long length) throws IOException {
+        if (entry.isStored()) {
+            ByteBuffer slice = this.buffer.duplicate();
+            slice.position((int) (entry.dataOffset + offset));
+            slice.limit((int) (entry.dataOffset + offset + length));
+            return new ByteBufferInputStream(slice.slice());
+        }
+
+        ByteBuffer compressed = this.buffer.duplicate();
+        compressed.position((int) entry.dataOffset);
+        compressed.limit((int) (entry.dataOffset + entry.compressedSize));
+
+        InputStream in = new InflatingInputStream(new ByteBufferInputStream(compressed.slice()));
+        try {
+            long skipped = 0;
+            while (skipped < offset) {
+                long n = in.skip(offset - skipped);
+                if (n <= 0) {
+                    throw new IOException("unexpected end of entry: " + entry.name);
+                }
+                skipped += n;
+            }
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+
+        return new BoundedInputStream(in, length);
+    }
+
+    private Map<String, Entry> readCentralDirectory() throws IOException {
+        ByteBuffer buf = this.buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int limit = buf.limit();
+
+        int eocd = -1;
+        int stop = Math.max(0, limit - END_OF_CENTRAL_DIRECTORY_MIN_SIZE - MAX_COMMENT_SIZE);
+        for (int i = limit - END_OF_CENTRAL_DIRECTORY_MIN_SIZE; i >= stop; i--) {
+            if (buf.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) {
+            throw new IOException("not a zip file: " + this.file);
+        }
+
+        int count = buf.getShort(eocd + 10) & 0xFFFF;
+        long cdOffset = buf.getInt(eocd + 16) & 0xFFFFFFFFL;
+        if (count == 0xFFFF || cdOffset == 0xFFFFFFFFL) {
+            throw new IOException("zip64 asset packs are not supported: " + this.file);
+        }
+
+        Map<String, Entry> result = new HashMap<>(count * 2);
+        int pos = (int) cdOffset;
+        for (int i = 0; i < count; i++) {
+            if (buf.getInt(pos) != CENTRAL_DIRECTORY_SIGNATURE) {
+                throw new IOException("corrupt central directory: " + this.file);
+            }
+
+            int flags = buf.getShort(pos + 8) & 0xFFFF;
+            int method = buf.getShort(pos + 10) & 0xFFFF;
+            long compressedSize = buf.getInt(pos + 20) & 0xFFFFFFFFL;
+            long size = buf.getInt(pos + 24) & 0xFFFFFFFFL;
+            int nameLength = buf.getShort(pos + 28) & 0xFFFF;
+            int extraLength = buf.getShort(pos + 30) & 0xFFFF;
+            int commentLength = buf.getShort(pos + 32) & 0xFFFF;
+            long localHeaderOffset = buf.getInt(pos + 42) & 0xFFFFFFFFL;
+
+            byte[] nameBytes = new byte[nameLength];
+            ByteBuffer nameBuf = buf.duplicate();
+            nameBuf.position(pos + 46);
+            nameBuf.get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            pos += 46 + nameLength + extraLength + commentLength;
+
+            if (name.endsWith("/") || (flags & 0x1) != 0) {
+                // 跳过目录和加密条目
+                continue;
+            }
+            if (method != METHOD_STORED && method != METHOD_DEFLATED) {
+                continue;
+            }
+
+            int lh = (int) localHeaderOffset;
+            if (buf.getInt(lh) != LOCAL_FILE_HEADER_SIGNATURE) {
+                throw new IOException("corrupt local header for " + name + ": " + this.file);
+            }
+            long dataOffset = lh + 30L + (buf.getShort(lh + 26) & 0xFFFF) + (buf.getShort(lh + 28) & 0xFFFF);
+            if (dataOffset + compressedSize > limit) {
+                throw new IOException("entry out of bounds: " + name);
+            }
+
+            result.put(name, new Entry(name, method, dataOffset, compressedSize, size));
+        }
+
+        return result;
+    }
+
+    @Getter
+    public static class Entry {
+        private final String name;
+        private final int method;
+        private final long dataOffset;
+        private final long compressedSize;
+        private final long size;
+
+        Entry(String name, int method, long dataOffset, long compressedSize, long size) {
+            this.name = name;
+            this.method = method;
+            this.dataOffset = dataOffset;
+            this.compressedSize = compressedSize;
+            this.size = size;
+        }
+
+        public boolean isStored() {
+            return this.method == METHOD_STORED;
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(@NonNull byte[] b, int off, int len) {
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int n = Math.min(len, this.buffer.remaining());
+            this.buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.min(Math.max(n, 0), this.buffer.remaining());
+            this.buffer.position(this.buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return this.buffer.remaining();
+        }
+    }
+
+    /**
+     * 使用自行创建的 Inflater 时 InflaterInputStream.close() 不会调用 end()，
+     * 原生的 zlib 内存要等到回收时才释放，因此在关闭时主动释放。
+     */
+    private static class InflatingInputStream extends InflaterInputStream {
+        private boolean closed;
+
+        InflatingInputStream(InputStream in) {
+            super(in, new Inflater(true));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+
+            try {
+                super.close();
+            } finally {
+                this.inf.end();
+            }
+        }
+    }
+
+    private static class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (this.remaining <= 0) {
+                return -1;
+            }
+
+            int b = this.in.read();
+            if (b >= 0) {
+                this.remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(@NonNull byte[] b, int off, int len) throws IOException {
+            if (this.remaining <= 0) {
+                return -1;
+            }
+
+            int n = this.in.read(b, off, (int) Math.min(len, this.remaining));
+            if (n > 0) {
+                this.remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+    }
+}
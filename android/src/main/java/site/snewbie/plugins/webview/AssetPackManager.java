@@ -0,0 +1,217 @@
+package site.snewbie.plugins.webview;
+
+import android.net.Uri;
+import android.webkit.MimeTypeMap;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import cn.hutool.core.util.StrUtil;
+
+/**
+ * 将资源包注册到虚拟 origin 下，并在 shouldInterceptRequest 中直接从内存映射文件返回内容。
+ * <p>
+ * shouldInterceptRequest 运行在 WebView 的 IO 线程上，注册/替换可以在任意线程进行。
+ */
+public class AssetPackManager {
+    private static final String DEFAULT_MIME_TYPE = "application/octet-stream";
+    private static final String INDEX_FILE = "index.html";
+
+    private final Map<String, AssetPack> packs = new ConcurrentHashMap<>();
+
+    /**
+     * 注册资源包，如果 origin 已存在则原子替换为新的资源包。
+     * 旧资源包上正在读取的请求不受影响，映射会在不再被引用时释放。
+     * <p>
+     * 更新资源包时必须写入新的路径：旧映射在被回收之前依然指向原文件，
+     * 原地覆盖或截断该文件会使后续读取触发 SIGBUS 导致进程崩溃，因此拒绝注册与当前资源包相同的文件。
+     */
+    public synchronized AssetPack register(String origin, File file, String version) throws IOException {
+        String key = this.normalizeOrigin(origin);
+
+        AssetPack current = this.packs.get(key);
+        if (current != null && current.getFile().getCanonicalPath().equals(file.getCanonicalPath())) {
+            throw new IllegalArgumentException("asset pack is already registered from " + file + ", updates must use a new path");
+        }
+
+        // 先完整解析索引再替换，保证替换过程中请求看到的要么是旧包，要么是新包
+        AssetPack pack = new AssetPack(file, version);
+        this.packs.put(key, pack);
+        return pack;
+    }
+
+    public synchronized AssetPack unregister(String origin) {
+        return this.packs.remove(this.normalizeOrigin(origin));
+    }
+
+    public AssetPack get(String origin) {
+        return this.packs.get(this.normalizeOrigin(origin));
+    }
+
+    public boolean isEmpty() {
+        return this.packs.isEmpty();
+    }
+
+    public WebResourceResponse intercept(WebResourceRequest request) {
+        if (this.packs.isEmpty() || !"GET".equalsIgnoreCase(request.getMethod())) {
+            return null;
+        }
+
+        Uri uri = request.getUrl();
+        if (uri.getScheme() == null || uri.getAuthority() == null) {
+            return null;
+        }
+
+        AssetPack pack = this.packs.get(this.normalizeOrigin(uri.getScheme() + "://" + uri.getAuthority()));
+        if (pack == null) {
+            return null;
+        }
+
+        String path = StrUtil.removePrefix(StrUtil.nullToEmpty(uri.getPath()), "/");
+        if (StrUtil.isEmpty(path) || path.endsWith("/")) {
+            path = path + INDEX_FILE;
+        }
+
+        AssetPack.Entry entry = pack.getEntry(path);
+        if (entry == null) {
+            return this.error(404, "Not Found");
+        }
+
+        try {
+            return this.respond(pack, entry, this.getHeader(request, "Range"));
+        } catch (IOException e) {
+            return this.error(500, "Internal Server Error");
+        }
+    }
+
+    private WebResourceResponse respond(AssetPack pack, AssetPack.Entry entry, String range) throws IOException {
+        String mimeType = this.getMimeType(entry.getName());
+        long size = entry.getSize();
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Accept-Ranges", "bytes");
+        headers.put("Cache-Control", "no-cache");
+        if (StrUtil.isNotBlank(pack.getVersion())) {
+            headers.put("ETag", "\"" + pack.getVersion() + "\"");
+        }
+
+        long[] bounds = parseRange(range, size);
+        if (bounds == null) {
+            headers.put("Content-Length", String.valueOf(size));
+            InputStream data = pack.open(entry, 0, size);
+            return new WebResourceResponse(mimeType, null, 200, "OK", headers, data);
+        }
+
+        if (bounds.length == 0) {
+            headers.put("Content-Range", "bytes */" + size);
+            return new WebResourceResponse(mimeType, null, 416, "Range Not Satisfiable", headers, null);
+        }
+
+        long start = bounds[0];
+        long end = bounds[1];
+        headers.put("Content-Range", "bytes " + start + "-" + end + "/" + size);
+        headers.put("Content-Length", String.valueOf(end - start + 1));
+        InputStream data = pack.open(entry, start, end - start + 1);
+        return new WebResourceResponse(mimeType, null, 206, "Partial Content", headers, data);
+    }
+
+    /**
+     * 解析单段 Range 请求头，返回 null 表示返回完整内容，返回空数组表示范围不可满足。
+     */
+    static long[] parseRange(String range, long size) {
+        if (StrUtil.isBlank(range) || !range.startsWith("bytes=") || range.contains(",")) {
+            return null;
+        }
+
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+
+        try {
+            String from = spec.substring(0, dash).trim();
+            String to = spec.substring(dash + 1).trim();
+
+            long start;
+            long end;
+            if (from.isEmpty()) {
+                // bytes=-N 表示最后 N 个字节
+                long suffix = Long.parseLong(to);
+                if (suffix <= 0) {
+                    return new long[0];
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(from);
+                end = to.isEmpty() ? size - 1 : Math.min(Long.parseLong(to), size - 1);
+            }
+
+            if (start >= size || start > end) {
+                return new long[0];
+            }
+
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String getMimeType(String name) {
+        String extension = StrUtil.subAfter(name, '.', true).toLowerCase(Locale.ROOT);
+        switch (extension) {
+            case "js":
+            case "mjs":
+                return "text/javascript";
+            case "wasm":
+                return "application/wasm";
+            case "json":
+                return "application/json";
+            default:
+                break;
+        }
+
+        String mimeType = MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension);
+        return StrUtil.isBlank(mimeType) ? DEFAULT_MIME_TYPE : mimeType;
+    }
+
+    private String getHeader(WebResourceRequest request, String name) {
+        Map<String, String> headers = request.getRequestHeaders();
+        if (headers == null) {
+            return null;
+        }
+
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+
+        return null;
+    }
+
+    private WebResourceResponse error(int statusCode, String reasonPhrase) {
+        return new WebResourceResponse("text/plain", "UTF-8", statusCode, reasonPhrase, new HashMap<>(), null);
+    }
+
+    private String normalizeOrigin(String origin) {
+        if (StrUtil.isBlank(origin)) {
+            throw new IllegalArgumentException("origin is required");
+        }
+
+        Uri uri = Uri.parse(origin.trim());
+        if (uri.getScheme() == null || uri.getAuthority() == null) {
+            throw new IllegalArgumentException("origin must be like https://app.local");
+        }
+
+        return uri.getScheme().toLowerCase(Locale.ROOT) + "://" + uri.getAuthority().toLowerCase(Locale.ROOT);
+    }
+}
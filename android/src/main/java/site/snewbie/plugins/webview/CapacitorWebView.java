@@ -5,9 +5,12 @@ import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.os.Bundle;
 import android.view.ViewGroup;
+import android.webkit.RenderProcessGoneDetail;
 import android.webkit.WebChromeClient;
 import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
 import android.widget.FrameLayout;
@@ -17,6 +20,7 @@ import com.getcapacitor.JSObject;
 import com.getcapacitor.PluginCall;
 
 import cn.hutool.core.util.StrUtil;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -34,6 +38,12 @@ public class CapacitorWebView {
 
     private RectF lastBounds;
 
+    private FrameLayout webViewParent;
+    @Setter(AccessLevel.PACKAGE)
+    private String lastUrl;
+    @Setter(AccessLevel.PACKAGE)
+    private Bundle savedState;
+
     public CapacitorWebView(String id, WebViewConfig config, CapacitorWebViewPlugin delegate, PluginCall call) {
         this.id = id;
         this.config = config;
@@ -44,6 +54,7 @@ public class CapacitorWebView {
 
     @SuppressLint("SetJavaScriptEnabled")
     public void render(PluginCall call) {
+        // call 为 null 时表示渲染进程丢失后的重建
         this.delegate.getActivity().runOnUiThread(() -> {
             try {
                 this.webView = new WebView(delegate.getContext());
@@ -60,6 +71,12 @@ public class CapacitorWebView {
                         return true;
                     }
 
+                    @Override
+                    public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+                        WebResourceResponse response = delegate.getAssetPacks().intercept(request);
+                        return response != null ? response : super.shouldInterceptRequest(view, request);
+                    }
+
                     @Override
                     public void onPageStarted(WebView view, String url, Bitmap favicon) {
                         super.onPageStarted(view, url, favicon);
@@ -71,8 +88,19 @@ public class CapacitorWebView {
                     public void onPageFinished(WebView view, String url) {
                         super.onPageFinished(view, url);
 
+                        lastUrl = url;
+                        Bundle state = new Bundle();
+                        if (view.saveState(state) != null) {
+                            savedState = state;
+                        }
+
                         notifyListeners("onPageFinished");
                     }
+
+                    @Override
+                    public boolean onRenderProcessGone(WebView view, RenderProcessGoneDetail detail) {
+                        return delegate.getRenderProcessSupervisor().onRenderProcessGone(CapacitorWebView.this, detail.didCrash(), detail.rendererPriorityAtExit());
+                    }
                 });
                 this.webView.setWebChromeClient(new WebChromeClient() {
                     @Override
@@ -83,8 +111,11 @@ public class CapacitorWebView {
                     }
                 });
 
+                this.webView.setDownloadListener((url, userAgent, contentDisposition, mimetype, contentLength) ->
+                        delegate.getDownloader().enqueue(id, url, userAgent, contentDisposition, mimetype));
+
                 Bridge bridge = this.delegate.getBridge();
-                FrameLayout webViewParent = new FrameLayout(bridge.getContext());
+                this.webViewParent = new FrameLayout(bridge.getContext());
                 webViewParent.setMinimumHeight(bridge.getWebView().getHeight());
                 webViewParent.setMinimumWidth(bridge.getWebView().getWidth());
 
@@ -97,7 +128,9 @@ public class CapacitorWebView {
 
                 webViewParent.setTag(this.id);
 
-                this.lastBounds = new RectF(this.config.getX(), this.config.getY(), this.config.getX() + this.config.getWidth(), this.config.getY() + this.config.getHeight());
+                if (!this.hidden || this.lastBounds == null) {
+                    this.lastBounds = new RectF(this.config.getX(), this.config.getY(), this.config.getX() + this.config.getWidth(), this.config.getY() + this.config.getHeight());
+                }
                 this.webView.setLayoutParams(layoutParams);
                 webViewParent.addView(this.webView);
 
@@ -107,18 +140,65 @@ public class CapacitorWebView {
                 bridge.getWebView().setBackgroundColor(Color.TRANSPARENT);
 
                 this.setWebViewEventListeners();
+                this.delegate.getRenderProcessSupervisor().applyRendererPriority(this);
 
-                if (StrUtil.isNotBlank(config.getUrl())) {
-                    this.webView.loadUrl(config.getUrl());
-                }
+                this.restore(this.webView);
 
-                call.resolve();
+                if (call != null) {
+                    call.resolve();
+                }
             } catch (Exception e) {
-                call.reject(e.getMessage(), e);
+                if (call != null) {
+                    call.reject(e.getMessage(), e);
+                }
             }
         });
     }
 
+    /**
+     * 优先恢复最后一次页面加载完成时保存的状态，无法恢复时加载 {@link #getRestoreUrl()}。
+     */
+    void restore(WebView view) {
+        boolean restored = this.savedState != null && view.restoreState(this.savedState) != null;
+        if (restored) {
+            return;
+        }
+
+        String url = this.getRestoreUrl();
+        if (StrUtil.isNotBlank(url)) {
+            view.loadUrl(url);
+        }
+    }
+
+    /**
+     * 重建时无法恢复保存的状态则加载该 url：优先最后访问的 url，其次是配置中的 url。
+     */
+    public String getRestoreUrl() {
+        return StrUtil.blankToDefault(this.lastUrl, this.config.getUrl());
+    }
+
+    /**
+     * 销毁当前的 WebView 并基于配置、最后访问的 url 以及保存的状态重新渲染，必须在 UI 线程上执行。
+     */
+    public void recreate() {
+        this.destroy();
+        this.render(null);
+    }
+
+    /**
+     * 将 WebView 从视图层级中移除并销毁，必须在 UI 线程上执行。
+     */
+    public void destroy() {
+        if (this.webViewParent != null && this.webViewParent.getParent() instanceof ViewGroup) {
+            ((ViewGroup) this.webViewParent.getParent()).removeView(this.webViewParent);
+        }
+        this.webViewParent = null;
+
+        if (this.webView != null) {
+            this.webView.destroy();
+        }
+    }
+
     public void updateRender(RectF updatedBounds) {
         // 如果 x, y, width, height 任意一个大于 0，就更新 lastBounds
         if (updatedBounds.left > 0 || updatedBounds.top > 0 || updatedBounds.width() > 0 || updatedBounds.height() > 0) {
@@ -1,6 +1,7 @@
 package site.snewbie.plugins.webview;
 
 import android.annotation.SuppressLint;
+import android.content.Intent;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.view.MotionEvent;
@@ -9,6 +10,7 @@ import android.webkit.ValueCallback;
 
 import androidx.annotation.NonNull;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
@@ -18,8 +20,9 @@ import com.getcapacitor.annotation.CapacitorPlugin;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.HashMap;
+import java.io.File;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import cn.hutool.core.util.BooleanUtil;
 import cn.hutool.core.util.ObjUtil;
@@ -30,12 +33,19 @@ import cn.hutool.core.util.StrUtil;
  */
 @CapacitorPlugin(name = "CapacitorWebView")
 public class CapacitorWebViewPlugin extends Plugin {
-    private final Map<String, CapacitorWebView> webViews = new HashMap<>();
-    private final Map<String, MutableList<MotionEvent>> cachedTouchEvents = new HashMap<>();
+    private final Map<String, CapacitorWebView> webViews = new ConcurrentHashMap<>();
+    private final Map<String, MutableList<MotionEvent>> cachedTouchEvents = new ConcurrentHashMap<>();
+    private final AssetPackManager assetPacks = new AssetPackManager();
+    private WebViewDownloader downloader;
+    private RenderProcessSupervisor renderProcessSupervisor;
+    private WebViewCommandQueue commandQueue;
 
     @Override
     public void load() {
         super.load();
+        this.downloader = new WebViewDownloader(this);
+        this.renderProcessSupervisor = new RenderProcessSupervisor(this);
+        this.commandQueue = new WebViewCommandQueue(super.getActivity());
         this.setOnTouchListener();
     }
 
@@ -90,8 +100,10 @@ public class CapacitorWebViewPlugin extends Plugin {
     @Override
     protected void handleOnDestroy() {
         super.handleOnDestroy();
+        this.downloader.shutdown();
+        this.commandQueue.shutdown();
         webViews.values().removeIf(webView -> {
-            webView.getWebView().destroy();
+            webView.destroy();
             return true;
         });
     }
@@ -172,43 +184,141 @@ public class CapacitorWebViewPlugin extends Plugin {
         call.resolve(new JSObject().put("value", hasCookies));
     }
 
+    /**
+     * 每次更新资源包都必须使用新的路径，不能原地覆盖已注册的文件，见 {@link AssetPackManager#register}。
+     */
     @PluginMethod
-    public void create(PluginCall call) {
+    public void registerAssetPack(PluginCall call) {
         try {
-            String id = call.getString("id");
-            if (null == id || id.isEmpty()) {
-                throw new IllegalArgumentException("id is required");
+            String origin = call.getString("origin");
+            if (StrUtil.isBlank(origin)) {
+                throw new IllegalArgumentException("origin is required");
+            }
+
+            String path = call.getString("path");
+            if (StrUtil.isBlank(path)) {
+                throw new IllegalArgumentException("path is required");
             }
 
+            // 相对路径基于应用的 files 目录
+            File file = new File(path);
+            if (!file.isAbsolute()) {
+                file = new File(super.getContext().getFilesDir(), path);
+            }
+            if (!file.isFile()) {
+                throw new IllegalArgumentException("asset pack not found: " + file);
+            }
+
+            AssetPack pack = this.assetPacks.register(origin, file, call.getString("version"));
+            call.resolve(new JSObject().put("entries", pack.size()));
+        } catch (Exception e) {
+            call.reject(e.getMessage(), e);
+        }
+    }
+
+    @PluginMethod
+    public void unregisterAssetPack(PluginCall call) {
+        try {
+            String origin = call.getString("origin");
+            if (StrUtil.isBlank(origin)) {
+                throw new IllegalArgumentException("origin is required");
+            }
+
+            this.assetPacks.unregister(origin);
+            call.resolve();
+        } catch (Exception e) {
+            call.reject(e.getMessage(), e);
+        }
+    }
+
+    @PluginMethod
+    public void listDownloads(PluginCall call) {
+        JSArray downloads = new JSArray();
+        for (DownloadTask task : this.downloader.list(call.getString("id"))) {
+            downloads.put(task.toJSObject());
+        }
+        call.resolve(new JSObject().put("downloads", downloads));
+    }
+
+    @PluginMethod
+    public void cancelDownload(PluginCall call) {
+        try {
+            DownloadTask task = this.downloader.cancel(this.getDownloadId(call));
+            call.resolve(task.toJSObject());
+        } catch (Exception e) {
+            call.reject(e.getMessage(), e);
+        }
+    }
+
+    @PluginMethod
+    public void resumeDownload(PluginCall call) {
+        try {
+            DownloadTask task = this.downloader.resume(this.getDownloadId(call));
+            call.resolve(task.toJSObject());
+        } catch (Exception e) {
+            call.reject(e.getMessage(), e);
+        }
+    }
+
+    @PluginMethod
+    public void removeDownload(PluginCall call) {
+        try {
+            boolean deleteFile = Boolean.TRUE.equals(call.getBoolean("deleteFile", false));
+            this.downloader.remove(this.getDownloadId(call), deleteFile);
+            call.resolve();
+        } catch (Exception e) {
+            call.reject(e.getMessage(), e);
+        }
+    }
+
+    @PluginMethod
+    public void openDownload(PluginCall call) {
+        try {
+            Intent intent = this.downloader.createOpenIntent(super.getContext(), this.getDownloadId(call));
+            super.getActivity().startActivity(intent);
+            call.resolve();
+        } catch (Exception e) {
+            call.reject(e.getMessage(), e);
+        }
+    }
+
+    @PluginMethod
+    public void create(PluginCall call) {
+        this.enqueue(call, () -> {
+            String id = call.getString("id");
+
             JSObject config = call.getObject("config");
             if (null == config) {
                 throw new IllegalArgumentException("config object is missing");
             }
 
+            WebViewConfig webViewConfig = new WebViewConfig(config);
             Boolean forceCreate = call.getBoolean("forceCreate", false);
 
-            if (webViews.containsKey(id)) {
-                if (ObjUtil.notEqual(forceCreate, true)) {
-                    call.resolve();
-                    return;
-                }
+            return () -> {
+                if (webViews.containsKey(id)) {
+                    if (ObjUtil.notEqual(forceCreate, true)) {
+                        call.resolve();
+                        return;
+                    }
 
-                CapacitorWebView oldWebView = webViews.remove(id);
-                if (oldWebView != null) {
-                    oldWebView.getWebView().destroy();
+                    CapacitorWebView oldWebView = webViews.remove(id);
+                    if (oldWebView != null) {
+                        oldWebView.destroy();
+                    }
+                    // 新实例不继承旧实例的崩溃重建次数
+                    this.renderProcessSupervisor.forget(id);
                 }
-            }
 
-            CapacitorWebView webView = new CapacitorWebView(id, new WebViewConfig(config), this, call);
-            webViews.put(id, webView);
-        } catch (Exception e) {
-            call.reject(e.getMessage(), e);
-        }
+                CapacitorWebView webView = new CapacitorWebView(id, webViewConfig, this, call);
+                webViews.put(id, webView);
+            };
+        }, true);
     }
 
     @PluginMethod
     public void loadUrl(PluginCall call) {
-        try {
+        this.enqueue(call, () -> {
             CapacitorWebView webView = this.getWebView(call);
 
             String url = call.getString("url");
@@ -216,18 +326,17 @@ public class CapacitorWebViewPlugin extends Plugin {
                 throw new IllegalArgumentException("url is required");
             }
 
-            super.getActivity().runOnUiThread(() -> {
+            return () -> {
+                this.ensureCurrent(webView);
                 webView.getWebView().loadUrl(url);
                 call.resolve();
-            });
-        } catch (Exception e) {
-            call.reject(e.getMessage(), e);
-        }
+            };
+        });
     }
 
     @PluginMethod
     public void evaluateJavascript(PluginCall call) {
-        try {
+        this.enqueue(call, () -> {
             CapacitorWebView webView = this.getWebView(call);
 
             String script = call.getString("script");
@@ -235,7 +344,8 @@ public class CapacitorWebViewPlugin extends Plugin {
                 throw new IllegalArgumentException("script is required");
             }
 
-            super.getActivity().runOnUiThread(() -> {
+            return () -> {
+                this.ensureCurrent(webView);
                 webView.getWebView().evaluateJavascript(script, value -> {
                     if (value == null) {
                         call.resolve();
@@ -246,59 +356,73 @@ public class CapacitorWebViewPlugin extends Plugin {
                     result.put("value", value);
                     call.resolve(result);
                 });
-            });
-        } catch (Exception e) {
-            call.reject(e.getMessage(), e);
-        }
+            };
+        });
     }
 
     @PluginMethod
     public void destroy(PluginCall call) {
-        try {
+        this.enqueue(call, () -> {
             String id = call.getString("id");
-            if (null == id || id.isEmpty()) {
-                throw new IllegalArgumentException("id is required");
-            }
+            CapacitorWebView webView = this.getWebView(call);
 
-            CapacitorWebView removedWebView = webViews.remove(id);
-            if (removedWebView == null) {
-                throw new IllegalArgumentException("webView not found");
-            }
+            return () -> {
+                this.ensureCurrent(webView);
+                webViews.remove(id, webView);
 
-            super.getActivity().runOnUiThread(() -> removedWebView.getWebView().destroy());
-            call.resolve();
-        } catch (Exception e) {
-            call.reject(e.getMessage(), e);
-        }
+                // 取消在 destroy 之后、下一次 create 之前提交的命令
+                this.commandQueue.cancel(id);
+                this.renderProcessSupervisor.forget(id);
+                this.downloader.discard(id);
+                webView.destroy();
+                call.resolve();
+            };
+        });
     }
 
     @PluginMethod
     public void show(PluginCall call) {
-        try {
+        this.enqueue(call, () -> {
             CapacitorWebView webView = this.getWebView(call);
-            webView.setHidden(false);
-            webView.updateRender(webView.getLastBounds());
-            call.resolve();
-        } catch (Exception e) {
-            call.reject(e.getMessage(), e);
-        }
+
+            return () -> {
+                this.ensureCurrent(webView);
+                webView.setHidden(false);
+                webView.updateRender(webView.getLastBounds());
+                this.renderProcessSupervisor.applyRendererPriority(webView);
+                call.resolve();
+            };
+        });
     }
 
     @PluginMethod
     public void hide(PluginCall call) {
-        try {
+        this.enqueue(call, () -> {
             CapacitorWebView webView = this.getWebView(call);
-            webView.setHidden(true);
-            webView.updateRender(new RectF(0, 0, 0, 0));
-            call.resolve();
-        } catch (Exception e) {
-            call.reject(e.getMessage(), e);
+
+            return () -> {
+                this.ensureCurrent(webView);
+                webView.setHidden(true);
+                webView.updateRender(new RectF(0, 0, 0, 0));
+                this.renderProcessSupervisor.applyRendererPriority(webView);
+                call.resolve();
+            };
+        });
+    }
+
+    @PluginMethod
+    public void getCommandQueueStats(PluginCall call) {
+        String id = call.getString("id");
+        if (StrUtil.isBlank(id)) {
+            call.reject("id is required");
+            return;
         }
+
+        call.resolve(this.commandQueue.getStats(id));
     }
 
     @PluginMethod
     public void enableTouch(PluginCall call) {
-        this.setOnTouchListener();
         this.setTouchEnabled(call, true);
     }
 
@@ -314,7 +438,7 @@ public class CapacitorWebViewPlugin extends Plugin {
 
     @PluginMethod
     public void onResize(PluginCall call) {
-        try {
+        this.enqueue(call, () -> {
             CapacitorWebView webView = this.getWebView(call);
 
             JSONObject boundsObj = call.getObject("webViewBounds");
@@ -324,12 +448,12 @@ public class CapacitorWebViewPlugin extends Plugin {
 
             RectF bounds = this.boundsObjectToRect(boundsObj);
 
-            webView.updateRender(bounds);
-
-            call.resolve();
-        } catch (Exception e) {
-            call.reject(e.getMessage(), e);
-        }
+            return () -> {
+                this.ensureCurrent(webView);
+                webView.updateRender(bounds);
+                call.resolve();
+            };
+        });
     }
 
     @PluginMethod
@@ -339,39 +463,71 @@ public class CapacitorWebViewPlugin extends Plugin {
 
     @PluginMethod
     public void dispatchWebViewEvent(PluginCall call) {
-        try {
+        this.enqueue(call, () -> {
             CapacitorWebView webView = this.getWebView(call);
 
             String id = call.getString("id");
 
             boolean focus = Boolean.TRUE.equals(call.getBoolean("focus", false));
 
-            MutableList<MotionEvent> events = cachedTouchEvents.get(id);
-            if (events != null) {
-                while (events.size() > 0) {
-                    MotionEvent event = events.first();
-                    if (focus) {
-                        webView.getWebView().dispatchTouchEvent(event);
-                    } else {
-                        this.bridge.getWebView().onTouchEvent(event);
+            return () -> {
+                this.ensureCurrent(webView);
+                MutableList<MotionEvent> events = cachedTouchEvents.get(id);
+                if (events != null) {
+                    while (events.size() > 0) {
+                        MotionEvent event = events.first();
+                        if (focus) {
+                            webView.getWebView().dispatchTouchEvent(event);
+                        } else {
+                            this.bridge.getWebView().onTouchEvent(event);
+                        }
+                        events.removeFirst();
                     }
-                    events.removeFirst();
                 }
-            }
 
-            call.resolve();
-        } catch (Exception e) {
-            call.reject(e.getMessage(), e);
-        }
+                call.resolve();
+            };
+        });
     }
 
     private void setTouchEnabled(PluginCall call, boolean enabled) {
-        try {
+        this.enqueue(call, () -> {
             CapacitorWebView webView = this.getWebView(call);
-            webView.setTouchEnabled(enabled);
-            call.resolve();
-        } catch (Exception e) {
-            call.reject(e.getMessage(), e);
+
+            return () -> {
+                this.ensureCurrent(webView);
+                if (enabled) {
+                    this.setOnTouchListener();
+                }
+                webView.setTouchEnabled(enabled);
+                call.resolve();
+            };
+        });
+    }
+
+    /**
+     * 将命令提交到对应 web 浏览器的串行队列中。
+     */
+    private void enqueue(PluginCall call, WebViewCommandQueue.Command command) {
+        this.enqueue(call, command, false);
+    }
+
+    private void enqueue(PluginCall call, WebViewCommandQueue.Command command, boolean create) {
+        String id = call.getString("id");
+        if (StrUtil.isBlank(id)) {
+            call.reject("id is required");
+            return;
+        }
+
+        this.commandQueue.submit(id, call, command, create);
+    }
+
+    /**
+     * 在 UI 线程上确认后台解析时拿到的实例仍是当前注册的实例，期间可能已被销毁或因渲染进程丢失而移除。
+     */
+    private void ensureCurrent(CapacitorWebView webView) {
+        if (webViews.get(webView.getId()) != webView) {
+            throw new IllegalArgumentException("webView not found");
         }
     }
 
@@ -415,6 +571,35 @@ public class CapacitorWebViewPlugin extends Plugin {
         return webView;
     }
 
+    private String getDownloadId(PluginCall call) {
+        String downloadId = call.getString("downloadId");
+        if (StrUtil.isBlank(downloadId)) {
+            throw new IllegalArgumentException("downloadId is required");
+        }
+
+        return downloadId;
+    }
+
+    public Map<String, CapacitorWebView> getWebViews() {
+        return this.webViews;
+    }
+
+    public WebViewCommandQueue getCommandQueue() {
+        return this.commandQueue;
+    }
+
+    public RenderProcessSupervisor getRenderProcessSupervisor() {
+        return this.renderProcessSupervisor;
+    }
+
+    public WebViewDownloader getDownloader() {
+        return this.downloader;
+    }
+
+    public AssetPackManager getAssetPacks() {
+        return this.assetPacks;
+    }
+
     public void notifyListeners(String webViewId, String event, JSObject data) {
         if (data == null) {
             data = new JSObject();
@@ -0,0 +1,9 @@
+package site.snewbie.plugins.webview;
+
+import androidx.core.content.FileProvider;
+
+/**
+ * 单独的 FileProvider 子类，避免与宿主应用声明的 FileProvider 在 manifest 合并时冲突。
+ */
+public class DownloadFileProvider extends FileProvider {
+}
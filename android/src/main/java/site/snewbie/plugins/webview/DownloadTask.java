@@ -0,0 +1,108 @@
+package site.snewbie.plugins.webview;
+
+import com.getcapacitor.JSObject;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter(AccessLevel.PACKAGE)
+public class DownloadTask {
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private final String id;
+    private final String webViewId;
+    private final String url;
+    private final String userAgent;
+    private final String mimeType;
+    private final String fileName;
+    private final long createdAt = System.currentTimeMillis();
+
+    /**
+     * 在下载线程上首次运行时分配，避免在 UI 线程上访问文件系统。
+     */
+    private volatile File file;
+
+    private volatile Status status = Status.PENDING;
+    private volatile long downloadedBytes;
+    private volatile long totalBytes = -1;
+    private volatile String error;
+
+    /**
+     * 首次响应中的 ETag 或 Last-Modified，续传时作为 If-Range 发送。
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private volatile String validator;
+
+    @Getter(AccessLevel.PACKAGE)
+    private volatile Future<?> future;
+
+    /**
+     * 每次提交或取消都会递增，用于区分同一任务的新旧两次运行。
+     */
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.NONE)
+    private volatile int generation;
+
+    /**
+     * 保证同一任务同一时间只有一个线程在写入临时文件。
+     */
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.NONE)
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    public DownloadTask(String id, String webViewId, String url, String userAgent, String mimeType, String fileName) {
+        this.id = id;
+        this.webViewId = webViewId;
+        this.url = url;
+        this.userAgent = userAgent;
+        this.mimeType = mimeType;
+        this.fileName = fileName;
+    }
+
+    synchronized int nextGeneration() {
+        return ++this.generation;
+    }
+
+    /**
+     * 下载过程中使用的临时文件，完成后重命名为 file，用于断点续传。
+     */
+    public File getPartFile() {
+        return this.file == null ? null : new File(this.file.getPath() + ".part");
+    }
+
+    public boolean isFinished() {
+        return this.status == Status.COMPLETED || this.status == Status.FAILED || this.status == Status.CANCELLED;
+    }
+
+    public JSObject toJSObject() {
+        File file = this.file;
+
+        JSObject result = new JSObject();
+        result.put("downloadId", this.id);
+        result.put("webViewId", this.webViewId);
+        // data: url 可能有数 MB，事件中只保留到逗号之前的部分
+        result.put("url", WebViewDownloader.isDataUrl(this.url) ? StrUtil.subBefore(this.url, ',', false) + "," : this.url);
+        result.put("mimeType", this.mimeType);
+        result.put("fileName", file == null ? this.fileName : file.getName());
+        if (file != null) {
+            result.put("path", file.getAbsolutePath());
+        }
+        result.put("status", this.status.name().toLowerCase(Locale.ROOT));
+        result.put("downloadedBytes", this.downloadedBytes);
+        result.put("totalBytes", this.totalBytes);
+        if (this.error != null) {
+            result.put("error", this.error);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,105 @@
+package site.snewbie.plugins.webview;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.webkit.WebView;
+
+import com.getcapacitor.JSObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 处理 web 浏览器渲染进程的丢失与优先级。
+ * <p>
+ * 渲染进程崩溃或被系统回收时，只销毁并重建受影响的 web 浏览器，避免整个应用被带崩。
+ */
+public class RenderProcessSupervisor {
+    /**
+     * 在该时间窗口内连续丢失渲染进程超过 MAX_RECOVERIES 次，则不再自动重建，避免崩溃循环。
+     */
+    private static final long RECOVERY_WINDOW_MS = 60_000;
+    private static final int MAX_RECOVERIES = 3;
+
+    private final CapacitorWebViewPlugin delegate;
+    private final Map<String, long[]> recoveries = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+
+    public RenderProcessSupervisor(CapacitorWebViewPlugin delegate) {
+        this(delegate, SystemClock::elapsedRealtime);
+    }
+
+    RenderProcessSupervisor(CapacitorWebViewPlugin delegate, LongSupplier clock) {
+        this.delegate = delegate;
+        this.clock = clock;
+    }
+
+    /**
+     * 渲染进程丢失时调用，必须在 UI 线程上执行。
+     *
+     * @param didCrash               渲染进程是否是崩溃，false 表示被系统回收
+     * @param rendererPriorityAtExit 渲染进程退出时的优先级
+     * @return 始终返回 true，告知 WebView 已经处理，避免应用被杀死
+     */
+    public boolean onRenderProcessGone(CapacitorWebView webView, boolean didCrash, int rendererPriorityAtExit) {
+        boolean recovered = false;
+        if (this.delegate.getWebViews().get(webView.getId()) == webView) {
+            if (this.allowRecovery(webView.getId())) {
+                webView.recreate();
+                recovered = true;
+            } else {
+                this.delegate.getWebViews().remove(webView.getId());
+                this.delegate.getCommandQueue().cancel(webView.getId());
+                this.delegate.getDownloader().discard(webView.getId());
+                this.forget(webView.getId());
+                webView.destroy();
+            }
+        }
+
+        JSObject data = new JSObject();
+        data.put("didCrash", didCrash);
+        data.put("rendererPriorityAtExit", rendererPriorityAtExit);
+        data.put("recovered", recovered);
+        webView.notifyListeners("onRenderProcessGone", data);
+        return true;
+    }
+
+    /**
+     * 根据 web 浏览器当前是否隐藏设置渲染进程优先级，隐藏时放弃优先级，使系统优先回收后台渲染进程。
+     * 必须在 UI 线程上执行。
+     */
+    public void applyRendererPriority(CapacitorWebView webView) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+
+        WebView view = webView.getWebView();
+        if (view == null) {
+            return;
+        }
+
+        if (webView.isHidden()) {
+            view.setRendererPriorityPolicy(WebView.RENDERER_PRIORITY_WAIVED, false);
+        } else {
+            view.setRendererPriorityPolicy(webView.getConfig().getRendererPriority(), true);
+        }
+    }
+
+    public void forget(String webViewId) {
+        this.recoveries.remove(webViewId);
+    }
+
+    private boolean allowRecovery(String webViewId) {
+        long now = this.clock.getAsLong();
+        // [0] 窗口开始时间，[1] 窗口内的重建次数
+        long[] window = this.recoveries.computeIfAbsent(webViewId, k -> new long[]{now, 0});
+        if (now - window[0] > RECOVERY_WINDOW_MS) {
+            window[0] = now;
+            window[1] = 0;
+        }
+
+        window[1]++;
+        return window[1] <= MAX_RECOVERIES;
+    }
+}
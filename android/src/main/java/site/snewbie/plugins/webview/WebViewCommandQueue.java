@@ -0,0 +1,343 @@
+package site.snewbie.plugins.webview;
+
+import android.app.Activity;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个 web 浏览器一条串行命令队列。
+ * <p>
+ * 命令的解析与校验在后台线程执行，只有最终对视图的修改会交给 UI 线程；
+ * 同一个 web 浏览器的命令按提交顺序依次执行，上一条命令的 UI 操作完成后才会开始下一条。
+ * <p>
+ * 没有存活实例的队列在空闲后即被移除，只保留最近 MAX_RETIRED_STATS 个队列的最终统计信息。
+ */
+public class WebViewCommandQueue {
+    private static final int BACKGROUND_THREADS = 2;
+    private static final int MAX_RETIRED_STATS = 20;
+
+    public interface Command {
+        /**
+         * 在后台线程执行解析与校验，返回需要在 UI 线程执行的操作，返回 null 表示无需切换到 UI 线程。
+         * 负责在合适的时机 resolve call，抛出异常时由队列 reject。
+         */
+        Runnable prepare() throws Exception;
+    }
+
+    private final Activity activity;
+    private final ExecutorService executor;
+
+    /**
+     * queues 与 retiredStats 都由 queues 的锁保护。持有该锁时不会再去获取单个队列的锁，避免死锁。
+     */
+    private final Map<String, SerialQueue> queues = new HashMap<>();
+    private final Map<String, Stats> retiredStats = new LinkedHashMap<String, Stats>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Stats> eldest) {
+            return this.size() > MAX_RETIRED_STATS;
+        }
+    };
+
+    public WebViewCommandQueue(Activity activity) {
+        this(activity, createExecutor());
+    }
+
+    WebViewCommandQueue(Activity activity, ExecutorService executor) {
+        this.activity = activity;
+        this.executor = executor;
+    }
+
+    private static ExecutorService createExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                BACKGROUND_THREADS, BACKGROUND_THREADS,
+                30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> new Thread(r, "CapacitorWebView-command")
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public void submit(String webViewId, PluginCall call, Command command) {
+        this.submit(webViewId, call, command, false);
+    }
+
+    /**
+     * @param create 是否是创建 web 浏览器的命令，取消时以此为界，之后的命令属于新的实例
+     */
+    public void submit(String webViewId, PluginCall call, Command command, boolean create) {
+        Task task = new Task(call, command, create);
+
+        // 队列可能恰好在空闲后被移除，此时重新获取一个新的队列
+        SerialQueue queue;
+        do {
+            queue = this.obtain(webViewId);
+        } while (!queue.offer(task));
+    }
+
+    /**
+     * 取消指定 web 浏览器已销毁实例上尚未开始的命令，正在执行的命令不受影响。
+     * 队列中下一条创建命令及其之后的命令属于新的实例，予以保留；没有剩余命令时队列在空闲后被移除。
+     */
+    public void cancel(String webViewId) {
+        SerialQueue queue;
+        synchronized (this.queues) {
+            queue = this.queues.get(webViewId);
+        }
+
+        if (queue != null) {
+            queue.cancelPending(false);
+        }
+    }
+
+    public JSObject getStats(String webViewId) {
+        SerialQueue queue;
+        Stats retired;
+        synchronized (this.queues) {
+            queue = this.queues.get(webViewId);
+            retired = this.retiredStats.get(webViewId);
+        }
+
+        if (queue != null) {
+            return queue.getStats();
+        }
+        return (retired == null ? new Stats() : retired).toJSObject(webViewId, 0, false);
+    }
+
+    boolean hasQueue(String webViewId) {
+        synchronized (this.queues) {
+            return this.queues.containsKey(webViewId);
+        }
+    }
+
+    public void shutdown() {
+        List<SerialQueue> queues;
+        synchronized (this.queues) {
+            queues = new ArrayList<>(this.queues.values());
+        }
+
+        for (SerialQueue queue : queues) {
+            queue.cancelPending(true);
+        }
+        this.executor.shutdownNow();
+
+        synchronized (this.queues) {
+            this.queues.clear();
+            this.retiredStats.clear();
+        }
+    }
+
+    private SerialQueue obtain(String webViewId) {
+        synchronized (this.queues) {
+            SerialQueue queue = this.queues.get(webViewId);
+            if (queue == null) {
+                // 同一个 id 重新创建时延续之前的统计信息
+                Stats stats = this.retiredStats.remove(webViewId);
+                queue = new SerialQueue(webViewId, stats == null ? new Stats() : stats);
+                this.queues.put(webViewId, queue);
+            }
+            return queue;
+        }
+    }
+
+    private void retire(SerialQueue queue, Stats stats) {
+        synchronized (this.queues) {
+            if (this.queues.get(queue.webViewId) == queue) {
+                this.queues.remove(queue.webViewId);
+                this.retiredStats.put(queue.webViewId, stats);
+            }
+        }
+    }
+
+    private static class Task {
+        private final PluginCall call;
+        private final Command command;
+        private final boolean create;
+        private final long enqueuedAt = System.nanoTime();
+
+        Task(PluginCall call, Command command, boolean create) {
+            this.call = call;
+            this.command = command;
+            this.create = create;
+        }
+    }
+
+    /**
+     * 由所属队列的锁保护。
+     */
+    private static class Stats {
+        private long executed;
+        private long cancelled;
+        private long totalLatencyNanos;
+        private long maxLatencyNanos;
+        private long lastLatencyNanos;
+
+        Stats copy() {
+            Stats copy = new Stats();
+            copy.executed = this.executed;
+            copy.cancelled = this.cancelled;
+            copy.totalLatencyNanos = this.totalLatencyNanos;
+            copy.maxLatencyNanos = this.maxLatencyNanos;
+            copy.lastLatencyNanos = this.lastLatencyNanos;
+            return copy;
+        }
+
+        JSObject toJSObject(String webViewId, int depth, boolean running) {
+            JSObject stats = new JSObject();
+            stats.put("id", webViewId);
+            stats.put("depth", depth);
+            stats.put("running", running);
+            stats.put("executed", this.executed);
+            stats.put("cancelled", this.cancelled);
+            stats.put("averageLatencyMs", this.executed == 0 ? 0 : this.totalLatencyNanos / this.executed / 1_000_000.0);
+            stats.put("maxLatencyMs", this.maxLatencyNanos / 1_000_000.0);
+            stats.put("lastLatencyMs", this.lastLatencyNanos / 1_000_000.0);
+            return stats;
+        }
+    }
+
+    private class SerialQueue {
+        private final String webViewId;
+        private final ArrayDeque<Task> pending = new ArrayDeque<>();
+        private final Stats stats;
+        private boolean running;
+
+        /**
+         * 是否存在通过该队列创建且尚未销毁的实例，为 false 时队列空闲后即被移除。
+         */
+        private boolean alive;
+        private boolean retired;
+
+        SerialQueue(String webViewId, Stats stats) {
+            this.webViewId = webViewId;
+            this.stats = stats;
+        }
+
+        /**
+         * @return 队列已被移除时返回 false，需要重新获取队列
+         */
+        synchronized boolean offer(Task task) {
+            if (this.retired) {
+                return false;
+            }
+
+            this.pending.add(task);
+            if (!this.running) {
+                this.running = true;
+                try {
+                    executor.execute(this::runNext);
+                } catch (RejectedExecutionException e) {
+                    this.running = false;
+                    this.pending.remove(task);
+                    task.call.reject("plugin destroyed");
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @param all 为 false 时遇到下一条创建命令即停止
+         */
+        synchronized void cancelPending(boolean all) {
+            this.alive = false;
+
+            Task task;
+            while ((task = this.pending.peek()) != null && (all || !task.create)) {
+                this.pending.poll();
+                this.stats.cancelled++;
+                task.call.reject("webView destroyed");
+            }
+
+            this.retireIfIdle();
+        }
+
+        private void runNext() {
+            Task task;
+            synchronized (this) {
+                task = this.pending.poll();
+                if (task == null) {
+                    this.running = false;
+                    this.retireIfIdle();
+                    return;
+                }
+            }
+
+            Runnable uiAction;
+            try {
+                uiAction = task.command.prepare();
+            } catch (Exception e) {
+                task.call.reject(e.getMessage(), e);
+                this.finish(task);
+                return;
+            }
+
+            if (uiAction == null) {
+                this.finish(task);
+                return;
+            }
+
+            activity.runOnUiThread(() -> {
+                try {
+                    uiAction.run();
+                    if (task.create) {
+                        synchronized (this) {
+                            this.alive = true;
+                        }
+                    }
+                } catch (Exception e) {
+                    task.call.reject(e.getMessage(), e);
+                } finally {
+                    this.finish(task);
+                }
+            });
+        }
+
+        private void finish(Task task) {
+            long latency = System.nanoTime() - task.enqueuedAt;
+            synchronized (this) {
+                this.stats.executed++;
+                this.stats.totalLatencyNanos += latency;
+                this.stats.lastLatencyNanos = latency;
+                this.stats.maxLatencyNanos = Math.max(this.stats.maxLatencyNanos, latency);
+            }
+
+            try {
+                executor.execute(this::runNext);
+            } catch (RejectedExecutionException e) {
+                // 插件销毁后 executor 已关闭
+                synchronized (this) {
+                    this.running = false;
+                }
+            }
+        }
+
+        /**
+         * 必须持有当前队列的锁。
+         */
+        private void retireIfIdle() {
+            if (this.alive || this.running || this.retired || !this.pending.isEmpty()) {
+                return;
+            }
+
+            this.retired = true;
+            retire(this, this.stats.copy());
+        }
+
+        synchronized JSObject getStats() {
+            return this.stats.toJSObject(this.webViewId, this.pending.size(), this.running);
+        }
+    }
+}
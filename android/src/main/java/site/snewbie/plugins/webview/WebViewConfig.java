@@ -1,5 +1,7 @@
 package site.snewbie.plugins.webview;
 
+import android.webkit.WebView;
+
 import com.getcapacitor.JSObject;
 
 import org.json.JSONException;
@@ -18,6 +20,11 @@ public class WebViewConfig {
 
     private String url;
 
+    /**
+     * 可见时的渲染进程优先级，隐藏时始终为 {@link WebView#RENDERER_PRIORITY_WAIVED}。
+     */
+    private int rendererPriority = WebView.RENDERER_PRIORITY_IMPORTANT;
+
     public WebViewConfig(JSObject fromJSONObject) throws JSONException {
         if (!fromJSONObject.has("width")) {
             throw new IllegalArgumentException("AMapConfig object is missing the required 'width' property");
@@ -43,6 +50,23 @@ public class WebViewConfig {
             url = fromJSONObject.getString("url");
         }
 
+        if (fromJSONObject.has("rendererPriority")) {
+            String priority = fromJSONObject.getString("rendererPriority");
+            switch (priority) {
+                case "important":
+                    rendererPriority = WebView.RENDERER_PRIORITY_IMPORTANT;
+                    break;
+                case "bound":
+                    rendererPriority = WebView.RENDERER_PRIORITY_BOUND;
+                    break;
+                case "waived":
+                    rendererPriority = WebView.RENDERER_PRIORITY_WAIVED;
+                    break;
+                default:
+                    throw new IllegalArgumentException("WebViewConfig 'rendererPriority' must be one of important, bound, waived");
+            }
+        }
+
         width = fromJSONObject.getInt("width");
         height = fromJSONObject.getInt("height");
         x = fromJSONObject.getInt("x");
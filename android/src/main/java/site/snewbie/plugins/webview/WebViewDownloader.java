@@ -0,0 +1,534 @@
+package site.snewbie.plugins.webview;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.webkit.CookieManager;
+import android.webkit.URLUtil;
+
+import androidx.core.content.FileProvider;
+
+import com.getcapacitor.JSObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+
+/**
+ * 接管 WebView 中触发的下载，使用 NIO channel 流式写入应用存储，支持断点续传。
+ * <p>
+ * data: url 会直接解码写入文件；blob: url 只在页面内有效，原生侧无法读取，这类下载会直接失败，
+ * 页面需要先将 blob 转换为 data: url 或上传到可访问的地址再触发下载。
+ */
+public class WebViewDownloader {
+    private static final int MAX_CONCURRENT_DOWNLOADS = 3;
+    private static final int MAX_FINISHED_TASKS = 50;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+    private static final int CONNECT_TIMEOUT_MS = 15_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+    private static final String DOWNLOAD_DIR = "downloads";
+    private static final String DATA_SCHEME = "data:";
+    private static final String BLOB_SCHEME = "blob:";
+
+    private final CapacitorWebViewPlugin delegate;
+    private final Map<String, DownloadTask> tasks = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    public WebViewDownloader(CapacitorWebViewPlugin delegate) {
+        this.delegate = delegate;
+        this.executor = new ThreadPoolExecutor(
+                MAX_CONCURRENT_DOWNLOADS, MAX_CONCURRENT_DOWNLOADS,
+                30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> new Thread(r, "CapacitorWebView-download")
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 由 DownloadListener 在 UI 线程上调用，文件分配等 IO 操作都放到下载线程上执行。
+     */
+    public DownloadTask enqueue(String webViewId, String url, String userAgent, String contentDisposition, String mimeType) {
+        boolean dataUrl = isDataUrl(url);
+        if (dataUrl) {
+            mimeType = StrUtil.blankToDefault(mimeType, getDataUrlMimeType(url));
+        }
+        // data: url 的内容中可能包含 /，不能用于推测文件名
+        String fileName = URLUtil.guessFileName(dataUrl ? DATA_SCHEME : url, contentDisposition, mimeType);
+        DownloadTask task = new DownloadTask(UUID.randomUUID().toString(), webViewId, url, userAgent, mimeType, fileName);
+        this.tasks.put(task.getId(), task);
+        this.submit(task);
+        return task;
+    }
+
+    public DownloadTask resume(String downloadId) {
+        DownloadTask task = this.getTask(downloadId);
+        if (task.getStatus() != DownloadTask.Status.FAILED && task.getStatus() != DownloadTask.Status.CANCELLED) {
+            throw new IllegalStateException("download is " + task.getStatus().name().toLowerCase(Locale.ROOT));
+        }
+
+        this.submit(task);
+        return task;
+    }
+
+    /**
+     * 取消下载，已下载的部分会保留，之后可以通过 resume 继续。
+     */
+    public DownloadTask cancel(String downloadId) {
+        DownloadTask task = this.getTask(downloadId);
+        if (task.isFinished()) {
+            return task;
+        }
+
+        // 使正在运行的那次下载失效，它退出前不会再修改任务状态
+        task.nextGeneration();
+        task.setStatus(DownloadTask.Status.CANCELLED);
+        if (task.getFuture() != null) {
+            task.getFuture().cancel(true);
+        }
+        this.evictFinished();
+        return task;
+    }
+
+    public void cancelAll(String webViewId) {
+        for (DownloadTask task : this.tasks.values()) {
+            if (webViewId == null || webViewId.equals(task.getWebViewId())) {
+                this.cancel(task.getId());
+            }
+        }
+    }
+
+    /**
+     * web 浏览器销毁时调用：取消它的所有下载并丢弃未完成的任务，已完成的文件保留。
+     */
+    public void discard(String webViewId) {
+        for (DownloadTask task : new ArrayList<>(this.tasks.values())) {
+            if (webViewId.equals(task.getWebViewId()) && task.getStatus() != DownloadTask.Status.COMPLETED) {
+                this.remove(task.getId(), false);
+            }
+        }
+    }
+
+    /**
+     * 移除下载任务，未完成的会先取消并删除临时文件；deleteFile 为 true 时同时删除已下载完成的文件。
+     */
+    public DownloadTask remove(String downloadId, boolean deleteFile) {
+        DownloadTask task = this.cancel(downloadId);
+        this.tasks.remove(downloadId);
+        this.deleteFiles(task, deleteFile);
+        return task;
+    }
+
+    public List<DownloadTask> list(String webViewId) {
+        List<DownloadTask> result = new ArrayList<>();
+        for (DownloadTask task : this.tasks.values()) {
+            if (webViewId == null || webViewId.equals(task.getWebViewId())) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    public Intent createOpenIntent(Context context, String downloadId) {
+        DownloadTask task = this.getTask(downloadId);
+        if (task.getStatus() != DownloadTask.Status.COMPLETED) {
+            throw new IllegalStateException("download is not completed");
+        }
+
+        Uri uri = FileProvider.getUriForFile(context, context.getPackageName() + ".webview.fileprovider", task.getFile());
+        String mimeType = StrUtil.blankToDefault(task.getMimeType(), context.getContentResolver().getType(uri));
+
+        Intent intent = new Intent(Intent.ACTION_VIEW);
+        intent.setDataAndType(uri, mimeType);
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_ACTIVITY_NEW_TASK);
+        return intent;
+    }
+
+    public void shutdown() {
+        this.cancelAll(null);
+        this.executor.shutdownNow();
+    }
+
+    private DownloadTask getTask(String downloadId) {
+        DownloadTask task = this.tasks.get(downloadId);
+        if (task == null) {
+            throw new IllegalArgumentException("download not found");
+        }
+        return task;
+    }
+
+    private void submit(DownloadTask task) {
+        int generation = task.nextGeneration();
+        task.setStatus(DownloadTask.Status.PENDING);
+        task.setError(null);
+        task.setFuture(this.executor.submit(() -> this.run(task, generation)));
+    }
+
+    private boolean isCurrent(DownloadTask task, int generation) {
+        return task.getGeneration() == generation;
+    }
+
+    private void run(DownloadTask task, int generation) {
+        // 取消后立即 resume 时，等待上一次运行真正退出后再开始写入临时文件
+        task.getRunLock().lock();
+        try {
+            if (!this.isCurrent(task, generation) || task.getStatus() != DownloadTask.Status.PENDING) {
+                return;
+            }
+
+            task.setStatus(DownloadTask.Status.RUNNING);
+            if (StrUtil.startWithIgnoreCase(task.getUrl(), BLOB_SCHEME)) {
+                throw new IOException("blob: urls are only readable inside the page, convert the blob to a data: url before downloading");
+            }
+            if (task.getFile() == null) {
+                task.setFile(this.allocateFile(task.getFileName()));
+            }
+            this.notifyListeners(task, "onDownloadStarted");
+
+            this.download(task, generation);
+        } catch (Exception e) {
+            if (this.isCurrent(task, generation) && task.getStatus() == DownloadTask.Status.RUNNING) {
+                task.setStatus(DownloadTask.Status.FAILED);
+                task.setError(e.getMessage());
+                this.notifyListeners(task, "onDownloadFailed");
+                this.evictFinished();
+            }
+        } finally {
+            task.getRunLock().unlock();
+        }
+    }
+
+    private void download(DownloadTask task, int generation) throws IOException {
+        if (isDataUrl(task.getUrl())) {
+            byte[] content = decodeDataUrl(task.getUrl());
+            task.setTotalBytes(content.length);
+            try (FileOutputStream out = new FileOutputStream(task.getPartFile())) {
+                out.write(content);
+            }
+            this.complete(task, generation);
+            return;
+        }
+
+        File partFile = task.getPartFile();
+        long offset = partFile.isFile() ? partFile.length() : 0;
+
+        HttpURLConnection connection = this.openConnection(task, offset);
+        try {
+            ResumeAction action = resolveResume(connection.getResponseCode(), offset, connection.getHeaderField("Content-Range"), task.getTotalBytes());
+            if (action == ResumeAction.RESTART) {
+                connection.disconnect();
+                offset = 0;
+                connection = this.openConnection(task, 0);
+                action = resolveResume(connection.getResponseCode(), 0, connection.getHeaderField("Content-Range"), task.getTotalBytes());
+            }
+
+            if (action == ResumeAction.COMPLETE) {
+                this.complete(task, generation);
+                return;
+            }
+
+            boolean append = action == ResumeAction.APPEND;
+            if (action == ResumeAction.OVERWRITE) {
+                offset = 0;
+                task.setValidator(getValidator(connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified")));
+            }
+
+            // getContentLengthLong 需要 API 24
+            long contentLength = NumberUtil.parseLong(connection.getHeaderField("Content-Length"), -1L);
+            task.setTotalBytes(contentLength < 0 ? -1 : offset + contentLength);
+            task.setDownloadedBytes(offset);
+
+            try (ReadableByteChannel source = Channels.newChannel(connection.getInputStream());
+                 FileOutputStream out = new FileOutputStream(partFile, append);
+                 FileChannel target = out.getChannel()) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                long lastNotify = 0;
+                while (source.read(buffer) >= 0) {
+                    if (!this.isCurrent(task, generation) || task.getStatus() != DownloadTask.Status.RUNNING || Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        task.setDownloadedBytes(task.getDownloadedBytes() + target.write(buffer));
+                    }
+                    buffer.clear();
+
+                    long now = System.currentTimeMillis();
+                    if (now - lastNotify >= PROGRESS_INTERVAL_MS) {
+                        lastNotify = now;
+                        this.notifyListeners(task, "onDownloadProgress");
+                    }
+                }
+            }
+
+            this.complete(task, generation);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection openConnection(DownloadTask task, long offset) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(task.getUrl()).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        connection.setInstanceFollowRedirects(true);
+
+        String cookie = CookieManager.getInstance().getCookie(task.getUrl());
+        if (StrUtil.isNotBlank(cookie)) {
+            connection.setRequestProperty("Cookie", cookie);
+        }
+        if (StrUtil.isNotBlank(task.getUserAgent())) {
+            connection.setRequestProperty("User-Agent", task.getUserAgent());
+        }
+        if (offset > 0) {
+            connection.setRequestProperty("Range", "bytes=" + offset + "-");
+            // 文件在服务端发生变化时返回完整内容，避免把新内容拼接到旧的临时文件上
+            if (StrUtil.isNotBlank(task.getValidator())) {
+                connection.setRequestProperty("If-Range", task.getValidator());
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * 续传请求得到响应后对临时文件的处理方式。
+     */
+    enum ResumeAction {
+        /**
+         * 206 且范围从本地已下载的位置开始，追加写入。
+         */
+        APPEND,
+        /**
+         * 200，服务端不支持 Range 或 If-Range 校验未通过，从头覆盖写入。
+         */
+        OVERWRITE,
+        /**
+         * 206 但范围与本地不一致，丢弃已下载的部分重新请求。
+         */
+        RESTART,
+        /**
+         * 416 且本地已是完整文件。
+         */
+        COMPLETE
+    }
+
+    static ResumeAction resolveResume(int code, long offset, String contentRange, long totalBytes) throws IOException {
+        if (code == HttpURLConnection.HTTP_PARTIAL) {
+            if (getContentRangeStart(contentRange) == offset) {
+                return ResumeAction.APPEND;
+            }
+            if (offset > 0) {
+                return ResumeAction.RESTART;
+            }
+            throw new IOException("unexpected Content-Range: " + contentRange);
+        }
+
+        if (code == HttpURLConnection.HTTP_OK) {
+            return ResumeAction.OVERWRITE;
+        }
+
+        if (code == 416 && offset > 0 && offset == totalBytes) {
+            return ResumeAction.COMPLETE;
+        }
+
+        throw new IOException("HTTP " + code);
+    }
+
+    /**
+     * 解析 "bytes start-end/total" 中的 start，无法解析时返回 -1。
+     */
+    static long getContentRangeStart(String contentRange) {
+        if (StrUtil.isBlank(contentRange) || !contentRange.trim().startsWith("bytes ")) {
+            return -1;
+        }
+
+        String range = StrUtil.subBefore(contentRange.trim().substring("bytes ".length()), '-', false);
+        return NumberUtil.parseLong(range.trim(), -1L);
+    }
+
+    /**
+     * 续传时作为 If-Range 发送的校验值。弱 ETag 不能用于 If-Range，此时退回 Last-Modified。
+     */
+    static String getValidator(String etag, String lastModified) {
+        if (StrUtil.isNotBlank(etag) && !etag.trim().startsWith("W/")) {
+            return etag.trim();
+        }
+        return StrUtil.isBlank(lastModified) ? null : lastModified.trim();
+    }
+
+    static boolean isDataUrl(String url) {
+        return StrUtil.startWithIgnoreCase(url, DATA_SCHEME);
+    }
+
+    /**
+     * 解析 data:[&lt;mediatype&gt;][;base64],&lt;data&gt; 中的 mediatype，省略时为 text/plain。
+     */
+    static String getDataUrlMimeType(String url) {
+        String mediaType = StrUtil.subBefore(StrUtil.subBefore(url.substring(DATA_SCHEME.length()), ',', false), ';', false).trim();
+        return StrUtil.isEmpty(mediaType) ? "text/plain" : mediaType.toLowerCase(Locale.ROOT);
+    }
+
+    static byte[] decodeDataUrl(String url) {
+        int comma = url.indexOf(',');
+        if (!isDataUrl(url) || comma < 0) {
+            throw new IllegalArgumentException("malformed data url");
+        }
+
+        String meta = url.substring(DATA_SCHEME.length(), comma);
+        String data = url.substring(comma + 1);
+        if (StrUtil.endWithIgnoreCase(meta.trim(), ";base64")) {
+            return Base64.decode(data);
+        }
+
+        // 非 base64 的内容按百分号编码解码，+ 不视为空格
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            int high;
+            int low;
+            if (bytes[i] == '%' && i + 2 < bytes.length
+                    && (high = Character.digit(bytes[i + 1], 16)) >= 0 && (low = Character.digit(bytes[i + 2], 16)) >= 0) {
+                out.write(high << 4 | low);
+                i += 2;
+            } else {
+                out.write(bytes[i]);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private void complete(DownloadTask task, int generation) throws IOException {
+        if (!this.isCurrent(task, generation)) {
+            return;
+        }
+
+        if (!task.getPartFile().renameTo(task.getFile())) {
+            throw new IOException("failed to move download to " + task.getFile());
+        }
+
+        task.setTotalBytes(task.getFile().length());
+        task.setDownloadedBytes(task.getTotalBytes());
+        task.setStatus(DownloadTask.Status.COMPLETED);
+        this.notifyListeners(task, "onDownloadCompleted");
+        this.evictFinished();
+    }
+
+    /**
+     * 只保留最近的 MAX_FINISHED_TASKS 个已结束任务，被淘汰的未完成任务会删除临时文件。
+     */
+    private void evictFinished() {
+        List<DownloadTask> evicted = new ArrayList<>();
+        synchronized (this.tasks) {
+            List<DownloadTask> finished = new ArrayList<>();
+            for (DownloadTask task : this.tasks.values()) {
+                if (task.isFinished()) {
+                    finished.add(task);
+                }
+            }
+
+            if (finished.size() <= MAX_FINISHED_TASKS) {
+                return;
+            }
+
+            finished.sort(Comparator.comparingLong(DownloadTask::getCreatedAt));
+            evicted.addAll(finished.subList(0, finished.size() - MAX_FINISHED_TASKS));
+            for (DownloadTask task : evicted) {
+                this.tasks.remove(task.getId());
+            }
+        }
+
+        for (DownloadTask task : evicted) {
+            this.deleteFiles(task, false);
+        }
+    }
+
+    private void deleteFiles(DownloadTask task, boolean deleteFile) {
+        Runnable delete = () -> {
+            // 等待可能仍在写入的那次运行退出
+            task.getRunLock().lock();
+            try {
+                File partFile = task.getPartFile();
+                if (partFile != null && partFile.exists() && !partFile.delete()) {
+                    partFile.deleteOnExit();
+                }
+                if (deleteFile && task.getStatus() == DownloadTask.Status.COMPLETED && task.getFile() != null) {
+                    task.getFile().delete();
+                }
+            } finally {
+                task.getRunLock().unlock();
+            }
+        };
+
+        try {
+            this.executor.execute(delete);
+        } catch (RejectedExecutionException e) {
+            delete.run();
+        }
+    }
+
+    private synchronized File allocateFile(String fileName) {
+        File dir = new File(this.delegate.getContext().getFilesDir(), DOWNLOAD_DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalStateException("failed to create download directory");
+        }
+
+        return nextAvailableFile(dir, fileName, this::isAllocated);
+    }
+
+    /**
+     * 文件名冲突时依次尝试 name (1).ext、name (2).ext ...
+     */
+    static File nextAvailableFile(File dir, String fileName, Predicate<File> isAllocated) {
+        String name = StrUtil.subBefore(fileName, '.', true);
+        String extension = StrUtil.subAfter(fileName, '.', true);
+        File file = new File(dir, fileName);
+        for (int i = 1; isAllocated.test(file); i++) {
+            file = new File(dir, StrUtil.isEmpty(extension) ? name + " (" + i + ")" : name + " (" + i + ")." + extension);
+        }
+        return file;
+    }
+
+    private boolean isAllocated(File file) {
+        if (file.exists() || new File(file.getPath() + ".part").exists()) {
+            return true;
+        }
+
+        for (DownloadTask task : this.tasks.values()) {
+            if (file.equals(task.getFile())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void notifyListeners(DownloadTask task, String event) {
+        JSObject data = task.toJSObject();
+        this.delegate.notifyListeners(task.getWebViewId(), event, data);
+    }
+}
@@ -0,0 +1,155 @@
+package site.snewbie.plugins.webview;
+
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class AssetPackTest {
+    private static final byte[] STORED = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DEFLATED = "hello asset pack, hello asset pack, hello asset pack".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsStoredAndDeflatedEntries() throws Exception {
+        AssetPack pack = new AssetPack(this.createZip(), "1");
+
+        assertEquals(2, pack.size());
+        assertNull(pack.getEntry("assets/"));
+
+        AssetPack.Entry stored = pack.getEntry("index.html");
+        assertTrue(stored.isStored());
+        assertEquals(STORED.length, stored.getSize());
+        assertArrayEquals(STORED, read(pack.open(stored, 0, stored.getSize())));
+
+        AssetPack.Entry deflated = pack.getEntry("assets/app.js");
+        assertFalse(deflated.isStored());
+        assertEquals(DEFLATED.length, deflated.getSize());
+        assertArrayEquals(DEFLATED, read(pack.open(deflated, 0, deflated.getSize())));
+    }
+
+    @Test
+    public void readsSlices() throws Exception {
+        AssetPack pack = new AssetPack(this.createZip(), "1");
+
+        assertEquals("56789", new String(read(pack.open(pack.getEntry("index.html"), 5, 5)), StandardCharsets.UTF_8));
+        assertEquals("asset", new String(read(pack.open(pack.getEntry("assets/app.js"), 6, 5)), StandardCharsets.UTF_8));
+        assertEquals(0, read(pack.open(pack.getEntry("index.html"), STORED.length, 0)).length);
+    }
+
+    @Test
+    public void rejectsOffsetsPastEndOfDeflatedEntry() throws Exception {
+        AssetPack pack = new AssetPack(this.createZip(), "1");
+
+        AssetPack.Entry deflated = pack.getEntry("assets/app.js");
+        assertThrows(IOException.class, () -> pack.open(deflated, DEFLATED.length + 10, 1));
+
+        // 关闭时释放 Inflater，重复关闭不应抛出异常
+        InputStream in = pack.open(deflated, 0, 5);
+        in.close();
+        in.close();
+    }
+
+    @Test
+    public void parsesRanges() {
+        assertNull(AssetPackManager.parseRange(null, 100));
+        assertNull(AssetPackManager.parseRange("items=0-1", 100));
+        assertNull(AssetPackManager.parseRange("bytes=0-1,5-6", 100));
+
+        assertArrayEquals(new long[]{0, 9}, AssetPackManager.parseRange("bytes=0-9", 100));
+        assertArrayEquals(new long[]{0, 99}, AssetPackManager.parseRange("bytes=0-999", 100));
+        assertArrayEquals(new long[]{90, 99}, AssetPackManager.parseRange("bytes=-10", 100));
+        assertArrayEquals(new long[]{0, 99}, AssetPackManager.parseRange("bytes=-1000", 100));
+        assertArrayEquals(new long[]{50, 99}, AssetPackManager.parseRange("bytes=50-", 100));
+
+        assertEquals(0, AssetPackManager.parseRange("bytes=100-", 100).length);
+        assertEquals(0, AssetPackManager.parseRange("bytes=-0", 100).length);
+        assertEquals(0, AssetPackManager.parseRange("bytes=9-5", 100).length);
+    }
+
+    @Test
+    public void rejectsNonZip() throws Exception {
+        File file = this.folder.newFile("pack.bin");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(STORED);
+            out.write(new byte[64]);
+        }
+
+        assertThrows(IOException.class, () -> new AssetPack(file, null));
+    }
+
+    @Test
+    public void rejectsZip64() throws Exception {
+        // 只有结束记录，条目数为 0xFFFF，表示需要读取 ZIP64 结束记录
+        ByteBuffer eocd = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+        eocd.putInt(0x06054b50);
+        eocd.putShort((short) 0);
+        eocd.putShort((short) 0);
+        eocd.putShort((short) 0xFFFF);
+        eocd.putShort((short) 0xFFFF);
+        eocd.putInt(0xFFFFFFFF);
+        eocd.putInt(0xFFFFFFFF);
+        eocd.putShort((short) 0);
+
+        File file = this.folder.newFile("pack64.zip");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(eocd.array());
+        }
+
+        IOException e = assertThrows(IOException.class, () -> new AssetPack(file, null));
+        assertTrue(e.getMessage().contains("zip64"));
+    }
+
+    private File createZip() throws IOException {
+        File file = this.folder.newFile("pack.zip");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            out.putNextEntry(new ZipEntry("assets/"));
+            out.closeEntry();
+
+            CRC32 crc = new CRC32();
+            crc.update(STORED);
+            ZipEntry stored = new ZipEntry("index.html");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(STORED.length);
+            stored.setCompressedSize(STORED.length);
+            stored.setCrc(crc.getValue());
+            out.putNextEntry(stored);
+            out.write(STORED);
+            out.closeEntry();
+
+            ZipEntry deflated = new ZipEntry("assets/app.js");
+            deflated.setMethod(ZipEntry.DEFLATED);
+            out.putNextEntry(deflated);
+            out.write(DEFLATED);
+            out.closeEntry();
+        }
+        return file;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[7];
+            int n;
+            while ((n = input.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package site.snewbie.plugins.webview;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import android.os.Bundle;
+import android.webkit.WebBackForwardList;
+import android.webkit.WebView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.getcapacitor.JSObject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RenderProcessSupervisorTest {
+    private static final String ID = "main";
+    private static final int PRIORITY = 2;
+
+    private final AtomicLong now = new AtomicLong();
+    private final Map<String, CapacitorWebView> webViews = new ConcurrentHashMap<>();
+
+    private CapacitorWebViewPlugin plugin;
+    private AppCompatActivity activity;
+    private WebViewCommandQueue commandQueue;
+    private WebViewDownloader downloader;
+    private RenderProcessSupervisor supervisor;
+    private CapacitorWebView webView;
+
+    @Before
+    public void setUp() {
+        this.plugin = mock(CapacitorWebViewPlugin.class);
+        this.activity = mock(AppCompatActivity.class);
+        this.commandQueue = mock(WebViewCommandQueue.class);
+        this.downloader = mock(WebViewDownloader.class);
+        when(this.plugin.getActivity()).thenReturn(this.activity);
+        when(this.plugin.getWebViews()).thenReturn(this.webViews);
+        when(this.plugin.getCommandQueue()).thenReturn(this.commandQueue);
+        when(this.plugin.getDownloader()).thenReturn(this.downloader);
+
+        WebViewConfig config = new WebViewConfig();
+        config.setX(0);
+        config.setY(0);
+        config.setWidth(100);
+        config.setHeight(100);
+        config.setUrl("https://example.com/");
+
+        // activity 是 mock，构造时的渲染不会真正执行
+        this.webView = new CapacitorWebView(ID, config, this.plugin, null);
+        this.webViews.put(ID, this.webView);
+        clearInvocations(this.activity);
+
+        this.supervisor = new RenderProcessSupervisor(this.plugin, this.now::get);
+    }
+
+    @Test
+    public void rerendersSameInstanceOnRecovery() throws Exception {
+        assertTrue(this.supervisor.onRenderProcessGone(this.webView, true, PRIORITY));
+
+        // 重建只是重新渲染同一个实例，仍然注册在插件中
+        verify(this.activity).runOnUiThread(any(Runnable.class));
+        assertSame(this.webView, this.webViews.get(ID));
+        assertEvent(true, PRIORITY, true);
+    }
+
+    @Test
+    public void restoresSavedStateWithoutReloading() {
+        Bundle state = mock(Bundle.class);
+        WebView view = mock(WebView.class);
+        when(view.restoreState(state)).thenReturn(mock(WebBackForwardList.class));
+        this.webView.setSavedState(state);
+        this.webView.setLastUrl("https://example.com/page");
+
+        this.webView.restore(view);
+
+        verify(view).restoreState(state);
+        verify(view, never()).loadUrl(anyString());
+    }
+
+    @Test
+    public void loadsLastUrlWhenStateCannotBeRestored() {
+        Bundle state = mock(Bundle.class);
+        WebView view = mock(WebView.class);
+        when(view.restoreState(state)).thenReturn(null);
+        this.webView.setSavedState(state);
+        this.webView.setLastUrl("https://example.com/page");
+
+        this.webView.restore(view);
+
+        verify(view).loadUrl("https://example.com/page");
+    }
+
+    @Test
+    public void loadsConfigUrlBeforeAnyPageFinished() {
+        WebView view = mock(WebView.class);
+
+        this.webView.restore(view);
+
+        verify(view, never()).restoreState(any(Bundle.class));
+        verify(view).loadUrl("https://example.com/");
+    }
+
+    @Test
+    public void destroysAfterThreeLossesWithinWindow() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            this.now.addAndGet(10_000);
+            this.supervisor.onRenderProcessGone(this.webView, false, PRIORITY);
+        }
+        verify(this.activity, times(3)).runOnUiThread(any(Runnable.class));
+        assertSame(this.webView, this.webViews.get(ID));
+
+        this.now.addAndGet(10_000);
+        assertTrue(this.supervisor.onRenderProcessGone(this.webView, false, PRIORITY));
+
+        verify(this.activity, times(3)).runOnUiThread(any(Runnable.class));
+        assertNull(this.webViews.get(ID));
+        verify(this.commandQueue).cancel(ID);
+        verify(this.downloader).discard(ID);
+        assertEvent(false, PRIORITY, false);
+    }
+
+    @Test
+    public void recoversAgainAfterWindowExpires() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            this.supervisor.onRenderProcessGone(this.webView, true, PRIORITY);
+        }
+
+        this.now.addAndGet(60_001);
+        this.supervisor.onRenderProcessGone(this.webView, true, PRIORITY);
+
+        verify(this.activity, times(4)).runOnUiThread(any(Runnable.class));
+        assertSame(this.webView, this.webViews.get(ID));
+        assertEvent(true, PRIORITY, true);
+    }
+
+    @Test
+    public void ignoresViewsNoLongerRegistered() throws Exception {
+        this.webViews.remove(ID);
+
+        assertTrue(this.supervisor.onRenderProcessGone(this.webView, true, PRIORITY));
+
+        verify(this.activity, never()).runOnUiThread(any(Runnable.class));
+        assertEvent(true, PRIORITY, false);
+    }
+
+    private void assertEvent(boolean didCrash, int priority, boolean recovered) throws Exception {
+        ArgumentCaptor<JSObject> captor = ArgumentCaptor.forClass(JSObject.class);
+        verify(this.plugin, atLeastOnce()).notifyListeners(eq(ID), eq("onRenderProcessGone"), captor.capture());
+
+        JSObject data = captor.getValue();
+        assertEquals(didCrash, data.getBoolean("didCrash"));
+        assertEquals(priority, data.getInt("rendererPriorityAtExit"));
+        assertEquals(recovered, data.getBoolean("recovered"));
+    }
+}
@@ -0,0 +1,245 @@
+package site.snewbie.plugins.webview;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import android.app.Activity;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class WebViewCommandQueueTest {
+    private static final String ID = "main";
+
+    private final List<String> log = new ArrayList<>();
+    private final Queue<Runnable> uiThread = new ArrayDeque<>();
+
+    private DirectExecutor executor;
+    private WebViewCommandQueue queue;
+
+    @Before
+    public void setUp() {
+        Activity activity = mock(Activity.class);
+        doAnswer(invocation -> this.uiThread.add(invocation.getArgument(0))).when(activity).runOnUiThread(any(Runnable.class));
+
+        this.executor = new DirectExecutor();
+        this.queue = new WebViewCommandQueue(activity, this.executor);
+    }
+
+    @Test
+    public void runsCommandsInSubmissionOrder() {
+        for (int i = 0; i < 3; i++) {
+            this.queue.submit(ID, mock(PluginCall.class), this.command("cmd" + i));
+        }
+        this.drainUiThread();
+
+        assertEquals(Arrays.asList("prepare cmd0", "ui cmd0", "prepare cmd1", "ui cmd1", "prepare cmd2", "ui cmd2"), this.log);
+    }
+
+    @Test
+    public void startsNextCommandOnlyAfterPreviousUiStep() {
+        this.queue.submit(ID, mock(PluginCall.class), this.command("first"));
+        this.queue.submit(ID, mock(PluginCall.class), this.command("second"));
+
+        assertEquals(Arrays.asList("prepare first"), this.log);
+        assertEquals(1, this.queue.getStats(ID).getInteger("depth").intValue());
+
+        this.uiThread.poll().run();
+        assertEquals(Arrays.asList("prepare first", "ui first", "prepare second"), this.log);
+        assertEquals(0, this.queue.getStats(ID).getInteger("depth").intValue());
+    }
+
+    @Test
+    public void queuesOfDifferentViewsDoNotBlockEachOther() {
+        this.queue.submit("a", mock(PluginCall.class), this.command("a"));
+        this.queue.submit("b", mock(PluginCall.class), this.command("b"));
+
+        assertEquals(Arrays.asList("prepare a", "prepare b"), this.log);
+    }
+
+    @Test
+    public void rejectsFailedPreparation() {
+        PluginCall call = mock(PluginCall.class);
+        IllegalArgumentException error = new IllegalArgumentException("url is required");
+
+        this.queue.submit(ID, call, () -> {
+            throw error;
+        });
+        this.queue.submit(ID, mock(PluginCall.class), this.command("next"));
+        this.drainUiThread();
+
+        verify(call).reject("url is required", error);
+        assertEquals(Arrays.asList("prepare next", "ui next"), this.log);
+    }
+
+    @Test
+    public void cancelStopsAtNextCreate() throws Exception {
+        this.create();
+
+        PluginCall loadUrl = mock(PluginCall.class);
+        this.queue.submit(ID, mock(PluginCall.class), this.destroy());
+        this.queue.submit(ID, loadUrl, this.command("loadUrl"));
+        this.queue.submit(ID, mock(PluginCall.class), this.command("create again"), true);
+        this.drainUiThread();
+
+        verify(loadUrl).reject("webView destroyed");
+        assertFalse(this.log.contains("prepare loadUrl"));
+        assertTrue(this.log.contains("ui create again"));
+
+        JSObject stats = this.queue.getStats(ID);
+        assertEquals(0, stats.getInteger("depth").intValue());
+        assertEquals(3, stats.getLong("executed"));
+        assertEquals(1, stats.getLong("cancelled"));
+        assertTrue(this.queue.hasQueue(ID));
+    }
+
+    @Test
+    public void retiresQueueOfDestroyedViewButKeepsStats() throws Exception {
+        this.create();
+        this.queue.submit(ID, mock(PluginCall.class), this.destroy());
+        this.queue.submit(ID, mock(PluginCall.class), this.command("loadUrl"));
+        this.drainUiThread();
+
+        assertFalse(this.queue.hasQueue(ID));
+        JSObject stats = this.queue.getStats(ID);
+        assertEquals(0, stats.getInteger("depth").intValue());
+        assertFalse(stats.getBool("running"));
+        assertEquals(2, stats.getLong("executed"));
+        assertEquals(1, stats.getLong("cancelled"));
+
+        // 同一个 id 再次创建时延续之前的统计
+        this.create();
+        assertEquals(3, this.queue.getStats(ID).getLong("executed"));
+        assertEquals(1, this.queue.getStats(ID).getLong("cancelled"));
+    }
+
+    @Test
+    public void retiresQueueWithoutLiveView() throws Exception {
+        // 从未创建过的 id 上的命令执行完后不保留队列
+        this.queue.submit("unknown", mock(PluginCall.class), this.command("loadUrl"));
+        this.drainUiThread();
+
+        assertFalse(this.queue.hasQueue("unknown"));
+        assertEquals(1, this.queue.getStats("unknown").getLong("executed"));
+    }
+
+    @Test
+    public void keepsBoundedNumberOfRetiredStats() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            this.queue.submit("view" + i, mock(PluginCall.class), this.command("loadUrl"));
+        }
+        this.drainUiThread();
+
+        assertEquals(0, this.queue.getStats("view0").getLong("executed"));
+        assertEquals(1, this.queue.getStats("view29").getLong("executed"));
+    }
+
+    @Test
+    public void rejectsAfterShutdown() {
+        PluginCall pending = mock(PluginCall.class);
+        this.queue.submit(ID, mock(PluginCall.class), this.command("running"));
+        this.queue.submit(ID, pending, this.command("pending"), true);
+
+        this.queue.shutdown();
+        verify(pending).reject("webView destroyed");
+
+        PluginCall late = mock(PluginCall.class);
+        this.queue.submit(ID, late, this.command("late"));
+        verify(late).reject("plugin destroyed");
+        assertFalse(this.log.contains("prepare late"));
+    }
+
+    @Test
+    public void reportsEmptyStatsForUnknownView() throws Exception {
+        JSObject stats = this.queue.getStats("missing");
+
+        assertEquals("missing", stats.getString("id"));
+        assertEquals(0, stats.getInteger("depth").intValue());
+        assertEquals(0, stats.getLong("executed"));
+        assertEquals(0, stats.getLong("cancelled"));
+    }
+
+    private void create() {
+        this.queue.submit(ID, mock(PluginCall.class), this.command("create"), true);
+        this.drainUiThread();
+    }
+
+    private WebViewCommandQueue.Command destroy() {
+        return () -> {
+            this.log.add("prepare destroy");
+            return () -> {
+                this.log.add("ui destroy");
+                this.queue.cancel(ID);
+            };
+        };
+    }
+
+    private WebViewCommandQueue.Command command(String name) {
+        return () -> {
+            this.log.add("prepare " + name);
+            return () -> this.log.add("ui " + name);
+        };
+    }
+
+    private void drainUiThread() {
+        Runnable runnable;
+        while ((runnable = this.uiThread.poll()) != null) {
+            runnable.run();
+        }
+    }
+
+    /**
+     * 在提交线程上直接执行，使后台步骤同步完成，UI 步骤由测试手动推进。
+     */
+    private static class DirectExecutor extends AbstractExecutorService {
+        private boolean shutdown;
+
+        @Override
+        public void execute(Runnable command) {
+            if (this.shutdown) {
+                throw new RejectedExecutionException();
+            }
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+            this.shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            this.shutdown = true;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return this.shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return this.shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package site.snewbie.plugins.webview;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class WebViewDownloaderTest {
+    @Test
+    public void appendsWhenRangeMatches() throws Exception {
+        assertEquals(WebViewDownloader.ResumeAction.APPEND, WebViewDownloader.resolveResume(206, 100, "bytes 100-199/200", 200));
+        assertEquals(WebViewDownloader.ResumeAction.APPEND, WebViewDownloader.resolveResume(206, 0, "bytes 0-199/200", -1));
+    }
+
+    @Test
+    public void restartsWhenRangeDoesNotMatch() throws Exception {
+        assertEquals(WebViewDownloader.ResumeAction.RESTART, WebViewDownloader.resolveResume(206, 100, "bytes 50-199/200", 200));
+        assertEquals(WebViewDownloader.ResumeAction.RESTART, WebViewDownloader.resolveResume(206, 100, null, 200));
+
+        // 重新请求后依然不一致则失败，不会无限重试
+        IOException e = assertThrows(IOException.class, () -> WebViewDownloader.resolveResume(206, 0, "bytes 50-199/200", 200));
+        assertTrue(e.getMessage().contains("Content-Range"));
+    }
+
+    @Test
+    public void overwritesWhenServerIgnoresRange() throws Exception {
+        // 不支持 Range 或 If-Range 校验未通过时返回 200，临时文件需要从头写入
+        assertEquals(WebViewDownloader.ResumeAction.OVERWRITE, WebViewDownloader.resolveResume(200, 100, null, 200));
+        assertEquals(WebViewDownloader.ResumeAction.OVERWRITE, WebViewDownloader.resolveResume(200, 0, null, -1));
+    }
+
+    @Test
+    public void completesOnlyWhenAlreadyFullLength() throws Exception {
+        assertEquals(WebViewDownloader.ResumeAction.COMPLETE, WebViewDownloader.resolveResume(416, 200, "bytes */200", 200));
+
+        assertThrows(IOException.class, () -> WebViewDownloader.resolveResume(416, 150, "bytes */200", 200));
+        assertThrows(IOException.class, () -> WebViewDownloader.resolveResume(416, 0, null, 0));
+        assertThrows(IOException.class, () -> WebViewDownloader.resolveResume(404, 100, null, 200));
+    }
+
+    @Test
+    public void parsesContentRangeStart() {
+        assertEquals(100, WebViewDownloader.getContentRangeStart("bytes 100-199/200"));
+        assertEquals(0, WebViewDownloader.getContentRangeStart(" bytes 0-0/* "));
+        assertEquals(-1, WebViewDownloader.getContentRangeStart("bytes */200"));
+        assertEquals(-1, WebViewDownloader.getContentRangeStart("items 0-1/2"));
+        assertEquals(-1, WebViewDownloader.getContentRangeStart(null));
+    }
+
+    @Test
+    public void selectsIfRangeValidator() {
+        assertEquals("\"v1\"", WebViewDownloader.getValidator("\"v1\"", "Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", WebViewDownloader.getValidator("W/\"v1\"", "Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", WebViewDownloader.getValidator(null, "Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertNull(WebViewDownloader.getValidator("W/\"v1\"", null));
+        assertNull(WebViewDownloader.getValidator("", " "));
+    }
+
+    @Test
+    public void numbersCollidingFileNames() {
+        File dir = new File("downloads");
+        Set<File> allocated = new HashSet<>(Arrays.asList(
+                new File(dir, "report.pdf"), new File(dir, "report (1).pdf"), new File(dir, "archive.tar.gz"), new File(dir, "README")));
+
+        assertEquals(new File(dir, "photo.png"), WebViewDownloader.nextAvailableFile(dir, "photo.png", allocated::contains));
+        assertEquals(new File(dir, "report (2).pdf"), WebViewDownloader.nextAvailableFile(dir, "report.pdf", allocated::contains));
+        assertEquals(new File(dir, "archive.tar (1).gz"), WebViewDownloader.nextAvailableFile(dir, "archive.tar.gz", allocated::contains));
+        assertEquals(new File(dir, "README (1)"), WebViewDownloader.nextAvailableFile(dir, "README", allocated::contains));
+    }
+
+    @Test
+    public void decodesDataUrls() {
+        assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), WebViewDownloader.decodeDataUrl("data:text/plain;base64,aGVsbG8="));
+        assertArrayEquals("a b+c,d".getBytes(StandardCharsets.UTF_8), WebViewDownloader.decodeDataUrl("data:,a%20b+c,d"));
+        assertArrayEquals("%zz%4".getBytes(StandardCharsets.UTF_8), WebViewDownloader.decodeDataUrl("DATA:,%zz%4"));
+        assertArrayEquals(new byte[]{(byte) 0xE4, (byte) 0xB8, (byte) 0xAD}, WebViewDownloader.decodeDataUrl("data:;charset=utf-8,%E4%B8%AD"));
+
+        assertThrows(IllegalArgumentException.class, () -> WebViewDownloader.decodeDataUrl("data:text/plain"));
+        assertThrows(IllegalArgumentException.class, () -> WebViewDownloader.decodeDataUrl("https://example.com/a,b"));
+    }
+
+    @Test
+    public void parsesDataUrlMimeType() {
+        assertEquals("image/png", WebViewDownloader.getDataUrlMimeType("data:image/PNG;base64,iVBO"));
+        assertEquals("text/csv", WebViewDownloader.getDataUrlMimeType("data:text/csv,a,b"));
+        assertEquals("text/plain", WebViewDownloader.getDataUrlMimeType("data:;charset=utf-8,abc"));
+        assertEquals("text/plain", WebViewDownloader.getDataUrlMimeType("data:,abc"));
+    }
+}
@@ -31,6 +31,13 @@ export interface WebViewConfig {
    * @since 0.0.1
    */
   url?: string;
+
+  /**
+   * 可见时渲染进程的优先级，隐藏时始终放弃优先级，使系统优先回收后台的渲染进程。仅 Android 8.0 及以上生效。
+   * @default 'important'
+   * @since 0.0.5
+   */
+  rendererPriority?: 'important' | 'bound' | 'waived';
 }
 
 /**
@@ -41,4 +48,75 @@ export type WebViewListenerCallback<T> = (data: T) => void;
 
 export interface WebViewReadyCallbackData {
   webViewId: string;
-}
\ No newline at end of file
+}
+
+export interface RenderProcessGoneData {
+  webViewId: string;
+  /**
+   * 渲染进程是否是崩溃，false 表示被系统回收。
+   * @since 0.0.5
+   */
+  didCrash: boolean;
+  rendererPriorityAtExit: number;
+  /**
+   * 是否已自动重建 web 浏览器，短时间内多次丢失渲染进程时不再重建，web 浏览器将被销毁。
+   * @since 0.0.5
+   */
+  recovered: boolean;
+}
+
+export interface CommandQueueStats {
+  id: string;
+  /**
+   * 尚未开始执行的命令数量。
+   * @since 0.0.5
+   */
+  depth: number;
+  running: boolean;
+  executed: number;
+  /**
+   * 因 web 浏览器被销毁而取消的命令数量。
+   * @since 0.0.5
+   */
+  cancelled: number;
+  /**
+   * 命令从提交到执行完成的平均耗时。
+   * @since 0.0.5
+   */
+  averageLatencyMs: number;
+  maxLatencyMs: number;
+  lastLatencyMs: number;
+}
+
+export interface DownloadInfo {
+  /**
+   * 下载任务的唯一标识符。
+   * @since 0.0.5
+   */
+  downloadId: string;
+  /**
+   * 触发下载的 web 浏览器实例的唯一标识符。
+   * @since 0.0.5
+   */
+  webViewId: string;
+  /**
+   * 下载地址，data: url 只保留逗号之前的部分。
+   * @since 0.0.5
+   */
+  url: string;
+  mimeType?: string;
+  fileName: string;
+  /**
+   * 文件在应用存储中的绝对路径，下载开始前尚未分配。
+   * @since 0.0.5
+   */
+  path?: string;
+  status: 'pending' | 'running' | 'completed' | 'failed' | 'cancelled';
+  downloadedBytes: number;
+  /**
+   * 文件总大小，未知时为 -1。
+   * @since 0.0.5
+   */
+  totalBytes: number;
+  error?: string;
+}
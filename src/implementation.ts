@@ -1,7 +1,7 @@
 import type { Plugin } from '@capacitor/core';
 import { registerPlugin } from '@capacitor/core';
 
-import type { WebViewConfig } from './definitions';
+import type { CommandQueueStats, DownloadInfo, WebViewConfig } from './definitions';
 
 export interface CreateWebViewArgs {
     /**
@@ -42,17 +42,25 @@ export interface WebViewPlugin extends Plugin {
     setCookie(args: { url: string; key: string; value: string; }): Promise<void>;
     removeAllCookies(): Promise<void>;
     hasCookies(): Promise<{ value: boolean }>;
+    registerAssetPack(args: { origin: string; path: string; version?: string; }): Promise<{ entries: number }>;
+    unregisterAssetPack(args: { origin: string; }): Promise<void>;
     create(options: CreateWebViewArgs): Promise<void>;
     loadUrl(args: { id: string; url: string; }): Promise<void>;
     evaluateJavascript(args: { id: string; script: string; }): Promise<{ value: string | null }>;
     destroy(args: { id: string }): Promise<void>;
     show(args: { id: string; }): Promise<void>;
     hide(args: { id: string; }): Promise<void>;
+    getCommandQueueStats(args: { id: string }): Promise<CommandQueueStats>;
     enableTouch(args: { id: string }): Promise<void>;
     disableTouch(args: { id: string }): Promise<void>;
     onScroll(args: WebViewBoundsArgs): Promise<void>;
     onResize(args: WebViewBoundsArgs): Promise<void>;
     onDisplay(args: WebViewBoundsArgs): Promise<void>;
+    listDownloads(args: { id?: string }): Promise<{ downloads: DownloadInfo[] }>;
+    cancelDownload(args: { downloadId: string }): Promise<DownloadInfo>;
+    resumeDownload(args: { downloadId: string }): Promise<DownloadInfo>;
+    removeDownload(args: { downloadId: string; deleteFile?: boolean }): Promise<void>;
+    openDownload(args: { downloadId: string }): Promise<void>;
     dispatchWebViewEvent(args: { id: string; focus: boolean }): Promise<void>;
 }
 
@@ -1,5 +1,8 @@
 export {
   WebViewConfig,
+  DownloadInfo,
+  RenderProcessGoneData,
+  CommandQueueStats,
 } from './definitions';
 
 export {
@@ -1,7 +1,7 @@
 import { Capacitor } from '@capacitor/core';
 import type { PluginListenerHandle } from '@capacitor/core';
 
-import { WebViewListenerCallback, WebViewReadyCallbackData } from './definitions';
+import { CommandQueueStats, DownloadInfo, RenderProcessGoneData, WebViewListenerCallback, WebViewReadyCallbackData } from './definitions';
 import type { CreateWebViewArgs } from "./implementation";
 import { CapacitorWebView } from './implementation';
 
@@ -36,6 +36,27 @@ export interface WebViewInterface {
      */
     hasCookies(): Promise<boolean>;
 
+    /**
+     * 将本地 zip 资源包注册到虚拟 origin 下，对该 origin 的请求将直接从资源包中返回，无需解压。
+     * 重复注册同一个 origin 会原子替换为新的资源包。
+     * 每次更新都必须把资源包写入新的路径，不能原地覆盖已注册的文件，否则正在映射该文件的应用可能直接崩溃；
+     * 使用与当前已注册资源包相同的路径注册会被拒绝。
+     * @function WebView.registerAssetPack
+     * @param origin 虚拟 origin，例如 https://app.local。
+     * @param path 资源包路径，相对路径基于应用的 files 目录。
+     * @param version 资源包版本，将作为响应的 ETag。
+     * @returns 资源包中的文件数量。
+     * @since 0.0.5
+     */
+    registerAssetPack(origin: string, path: string, version?: string): Promise<number>;
+    /**
+     * 取消注册指定 origin 的资源包。
+     * @function WebView.unregisterAssetPack
+     * @param origin 虚拟 origin。
+     * @since 0.0.5
+     */
+    unregisterAssetPack(origin: string): Promise<void>;
+
     /**
      * 创建 web 浏览器实例。
      * @function WebView.create
@@ -80,6 +101,42 @@ export interface WebViewInterface {
      */
     disableTouch(): Promise<void>;
 
+    /**
+     * 获取当前 web 浏览器命令队列的深度与耗时统计。
+     * @since 0.0.5
+     */
+    getCommandQueueStats(): Promise<CommandQueueStats>;
+
+    /**
+     * 列出当前 web 浏览器触发的所有下载。
+     * data: url 会直接解码保存；blob: url 只在页面内有效，无法在原生侧下载，会直接以失败结束，
+     * 页面需要先将 blob 转换为 data: url（例如通过 FileReader.readAsDataURL）再触发下载。
+     * @since 0.0.5
+     */
+    listDownloads(): Promise<DownloadInfo[]>;
+    /**
+     * 取消下载，已下载的部分会保留，可以通过 resumeDownload 继续。
+     * @since 0.0.5
+     */
+    cancelDownload(downloadId: string): Promise<DownloadInfo>;
+    /**
+     * 继续已失败或已取消的下载。
+     * @since 0.0.5
+     */
+    resumeDownload(downloadId: string): Promise<DownloadInfo>;
+    /**
+     * 移除下载任务，未完成的下载会被取消并删除临时文件。
+     * 已结束的任务只保留最近的 50 个，更早的会被自动移除。
+     * @param deleteFile 是否同时删除已下载完成的文件。
+     * @since 0.0.5
+     */
+    removeDownload(downloadId: string, deleteFile?: boolean): Promise<void>;
+    /**
+     * 使用系统中的其他应用打开已完成的下载。
+     * @since 0.0.5
+     */
+    openDownload(downloadId: string): Promise<void>;
+
     /**
      * 设置 web 浏览器开始加载页面时的监听器。
      * @since 0.0.1
@@ -95,6 +152,31 @@ export interface WebViewInterface {
      * @since 0.0.1
      */
     setOnProgressChangedListener(callback?: WebViewListenerCallback<{ newProgress: number }>): Promise<void>;
+    /**
+     * 设置渲染进程丢失时的监听器。
+     * @since 0.0.5
+     */
+    setOnRenderProcessGoneListener(callback?: WebViewListenerCallback<RenderProcessGoneData>): Promise<void>;
+    /**
+     * 设置下载开始时的监听器，继续下载时也会触发。
+     * @since 0.0.5
+     */
+    setOnDownloadStartedListener(callback?: WebViewListenerCallback<DownloadInfo>): Promise<void>;
+    /**
+     * 设置下载进度变化时的监听器，回调频率最多每 250ms 一次。
+     * @since 0.0.5
+     */
+    setOnDownloadProgressListener(callback?: WebViewListenerCallback<DownloadInfo>): Promise<void>;
+    /**
+     * 设置下载完成时的监听器。
+     * @since 0.0.5
+     */
+    setOnDownloadCompletedListener(callback?: WebViewListenerCallback<DownloadInfo>): Promise<void>;
+    /**
+     * 设置下载失败时的监听器。
+     * @since 0.0.5
+     */
+    setOnDownloadFailedListener(callback?: WebViewListenerCallback<DownloadInfo>): Promise<void>;
 }
 
 export class WebView implements WebViewInterface {
@@ -108,6 +190,11 @@ export class WebView implements WebViewInterface {
     private onPageStartedListener?: PluginListenerHandle;
     private onPageFinishedListener?: PluginListenerHandle;
     private onProgressChangedListener?: PluginListenerHandle;
+    private onRenderProcessGoneListener?: PluginListenerHandle;
+    private onDownloadStartedListener?: PluginListenerHandle;
+    private onDownloadProgressListener?: PluginListenerHandle;
+    private onDownloadCompletedListener?: PluginListenerHandle;
+    private onDownloadFailedListener?: PluginListenerHandle;
 
     private constructor(id: string) {
         this.id = id;
@@ -131,6 +218,15 @@ export class WebView implements WebViewInterface {
         return value;
     }
 
+    public static async registerAssetPack(origin: string, path: string, version?: string): Promise<number> {
+        const { entries } = await CapacitorWebView.registerAssetPack({ origin, path, version });
+        return entries;
+    }
+
+    public static async unregisterAssetPack(origin: string): Promise<void> {
+        return CapacitorWebView.unregisterAssetPack({ origin });
+    }
+
     public static async create(options: CreateWebViewArgs, callback?: WebViewListenerCallback<WebViewReadyCallbackData>): Promise<WebView> {
         const newWebView = new WebView(options.id);
 
@@ -294,6 +390,20 @@ export class WebView implements WebViewInterface {
         throw new Error('Method not implemented.');
     }
 
+    /**
+     * @deprecated Use WebView.registerAssetPack instead.
+     */
+    public registerAssetPack(_origin: string, _path: string, _version?: string): Promise<number> {
+        throw new Error('Method not implemented.');
+    }
+
+    /**
+     * @deprecated Use WebView.unregisterAssetPack instead.
+     */
+    public unregisterAssetPack(_origin: string): Promise<void> {
+        throw new Error('Method not implemented.');
+    }
+
     /**
      * @deprecated Use WebView.create instead.
      */
@@ -342,6 +452,31 @@ export class WebView implements WebViewInterface {
         return CapacitorWebView.disableTouch({ id: this.id });
     }
 
+    public getCommandQueueStats(): Promise<CommandQueueStats> {
+        return CapacitorWebView.getCommandQueueStats({ id: this.id });
+    }
+
+    public async listDownloads(): Promise<DownloadInfo[]> {
+        const { downloads } = await CapacitorWebView.listDownloads({ id: this.id });
+        return downloads;
+    }
+
+    public cancelDownload(downloadId: string): Promise<DownloadInfo> {
+        return CapacitorWebView.cancelDownload({ downloadId });
+    }
+
+    public resumeDownload(downloadId: string): Promise<DownloadInfo> {
+        return CapacitorWebView.resumeDownload({ downloadId });
+    }
+
+    public removeDownload(downloadId: string, deleteFile?: boolean): Promise<void> {
+        return CapacitorWebView.removeDownload({ downloadId, deleteFile });
+    }
+
+    public openDownload(downloadId: string): Promise<void> {
+        return CapacitorWebView.openDownload({ downloadId });
+    }
+
     private initScrolling(): void {
         const ionContents = document.getElementsByTagName('ion-content');
 
@@ -428,6 +563,66 @@ export class WebView implements WebViewInterface {
         }
     }
 
+    public async setOnRenderProcessGoneListener(callback?: WebViewListenerCallback<RenderProcessGoneData> | undefined): Promise<void> {
+        if (this.onRenderProcessGoneListener) {
+            this.onRenderProcessGoneListener.remove();
+        }
+
+        if (callback) {
+            this.onRenderProcessGoneListener = await CapacitorWebView.addListener('onRenderProcessGone', this.generateCallback(callback));
+        } else {
+            this.onRenderProcessGoneListener = undefined;
+        }
+    }
+
+    public async setOnDownloadStartedListener(callback?: WebViewListenerCallback<DownloadInfo> | undefined): Promise<void> {
+        if (this.onDownloadStartedListener) {
+            this.onDownloadStartedListener.remove();
+        }
+
+        if (callback) {
+            this.onDownloadStartedListener = await CapacitorWebView.addListener('onDownloadStarted', this.generateCallback(callback));
+        } else {
+            this.onDownloadStartedListener = undefined;
+        }
+    }
+
+    public async setOnDownloadProgressListener(callback?: WebViewListenerCallback<DownloadInfo> | undefined): Promise<void> {
+        if (this.onDownloadProgressListener) {
+            this.onDownloadProgressListener.remove();
+        }
+
+        if (callback) {
+            this.onDownloadProgressListener = await CapacitorWebView.addListener('onDownloadProgress', this.generateCallback(callback));
+        } else {
+            this.onDownloadProgressListener = undefined;
+        }
+    }
+
+    public async setOnDownloadCompletedListener(callback?: WebViewListenerCallback<DownloadInfo> | undefined): Promise<void> {
+        if (this.onDownloadCompletedListener) {
+            this.onDownloadCompletedListener.remove();
+        }
+
+        if (callback) {
+            this.onDownloadCompletedListener = await CapacitorWebView.addListener('onDownloadCompleted', this.generateCallback(callback));
+        } else {
+            this.onDownloadCompletedListener = undefined;
+        }
+    }
+
+    public async setOnDownloadFailedListener(callback?: WebViewListenerCallback<DownloadInfo> | undefined): Promise<void> {
+        if (this.onDownloadFailedListener) {
+            this.onDownloadFailedListener.remove();
+        }
+
+        if (callback) {
+            this.onDownloadFailedListener = await CapacitorWebView.addListener('onDownloadFailed', this.generateCallback(callback));
+        } else {
+            this.onDownloadFailedListener = undefined;
+        }
+    }
+
     private async removeAllWebViewListeners(): Promise<void> {
 
     }